@@ -0,0 +1,678 @@
+package de.htwg.alda.dictionary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface for string keys as adaptive radix tree (ART).
+ * <p>
+ * The keys are stored as UTF-8 bytes and every inner node branches on one byte.
+ * A lookup therefore costs O(key length) byte comparisons, independent of the number of entries,
+ * and keys with a common beginning share the path for it.
+ * <ul>
+ *     <li>Inner nodes adapt to the number of their children: Node4 and Node16 keep sorted key bytes,
+ *     Node48 maps each byte to one of 48 slots, Node256 has one slot per byte.</li>
+ *     <li>A chain of nodes with a single child each is compressed into the prefix of one node
+ *     (path compression), and a subtree with a single key is just a leaf.</li>
+ *     <li>A key that ends inside the tree, like "verbesser" under "verbessert", is stored
+ *     at the inner node where it ends.</li>
+ * </ul>
+ * The iterator returns the entries in ascending order of their UTF-8 bytes, which is the code point order.
+ * It equals the order of String.compareTo except for characters outside the BMP.
+ * {@link #prefixIterator(String)} returns all entries whose key starts with a given prefix.
+ *
+ * @param <V> Value.
+ */
+public class AdaptiveRadixTreeDictionary<V> implements Dictionary<String, V> {
+
+    // either a Leaf, an Inner node or null
+    private Object root = null;
+    private int size = 0;
+    private int modCount = 0;
+    private V oldValue = null;
+
+    @Override
+    public V insert(String key, V value) {
+        oldValue = null;
+        root = insertR(root, bytes(key), 0, value);
+        modCount++;
+        return oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object insertR(Object node, byte[] key, int depth, V value) {
+        if (node == null) {
+            size++;
+            return new Leaf<>(key, value);
+        }
+
+        if (node instanceof Leaf<?> l) {
+            Leaf<V> leaf = (Leaf<V>) l;
+            if (Arrays.equals(leaf.key, key)) {
+                // key gefunden, ersetzen
+                oldValue = leaf.value;
+                leaf.value = value;
+                return leaf;
+            }
+
+            // both keys share the bytes up to split, a new node branches there
+            int split = depth + commonLength(leaf.key, key, depth);
+            Inner<V> n = new Node4<>(Arrays.copyOfRange(key, depth, split));
+            n = n.put(leaf.key, split, leaf);
+            n = n.put(key, split, new Leaf<>(key, value));
+            size++;
+            return n;
+        }
+
+        Inner<V> n = (Inner<V>) node;
+        int p = prefixMatch(n, key, depth);
+        if (p < n.prefix.length) {
+            // the key leaves the compressed path of n, split the path
+            Inner<V> parent = new Node4<>(Arrays.copyOf(n.prefix, p));
+            int edge = n.prefix[p] & 0xFF;
+            n.prefix = Arrays.copyOfRange(n.prefix, p + 1, n.prefix.length);
+            parent = parent.addChild(edge, n);
+            parent = parent.put(key, depth + p, new Leaf<>(key, value));
+            size++;
+            return parent;
+        }
+
+        depth += n.prefix.length;
+        if (depth == key.length) {
+            // the key ends at this node
+            if (n.leaf != null) {
+                oldValue = n.leaf.value;
+                n.leaf.value = value;
+            } else {
+                n.leaf = new Leaf<>(key, value);
+                size++;
+            }
+            return n;
+        }
+
+        int b = key[depth] & 0xFF;
+        Object child = n.findChild(b);
+        if (child == null) {
+            size++;
+            return n.addChild(b, new Leaf<>(key, value));
+        }
+
+        Object newChild = insertR(child, key, depth + 1, value);
+        if (newChild != child)
+            n.replaceChild(b, newChild);
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V search(String key) {
+        byte[] k = bytes(key);
+        Object node = root;
+        int depth = 0;
+
+        while (node instanceof Inner<?> i) {
+            Inner<V> n = (Inner<V>) i;
+            if (prefixMatch(n, k, depth) < n.prefix.length)
+                return null;
+            depth += n.prefix.length;
+            if (depth == k.length)
+                return n.leaf == null ? null : n.leaf.value;
+            node = n.findChild(k[depth++] & 0xFF);
+        }
+
+        // a leaf holds its whole key, the bytes skipped on the way have to be compared as well
+        Leaf<V> leaf = (Leaf<V>) node;
+        return leaf != null && Arrays.equals(leaf.key, k) ? leaf.value : null;
+    }
+
+    @Override
+    public V remove(String key) {
+        oldValue = null;
+        int oldSize = size;
+        root = removeR(root, bytes(key), 0);
+        if (size != oldSize)
+            modCount++;
+        return oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object removeR(Object node, byte[] key, int depth) {
+        if (node == null)
+            return null;
+
+        if (node instanceof Leaf<?> l) {
+            Leaf<V> leaf = (Leaf<V>) l;
+            if (!Arrays.equals(leaf.key, key))
+                return leaf;
+            oldValue = leaf.value;
+            size--;
+            return null;
+        }
+
+        Inner<V> n = (Inner<V>) node;
+        if (prefixMatch(n, key, depth) < n.prefix.length)
+            return n;
+
+        depth += n.prefix.length;
+        if (depth == key.length) {
+            if (n.leaf == null)
+                return n;
+            oldValue = n.leaf.value;
+            n.leaf = null;
+            size--;
+            return collapse(n);
+        }
+
+        int b = key[depth] & 0xFF;
+        Object child = n.findChild(b);
+        if (child == null)
+            return n;
+
+        Object newChild = removeR(child, key, depth + 1);
+        if (newChild == child)
+            return n;
+        if (newChild == null)
+            n = n.removeChild(b);
+        else
+            n.replaceChild(b, newChild);
+        return collapse(n);
+    }
+
+    /**
+     * Replaces a node that is no longer needed by its only content.
+     */
+    @SuppressWarnings("unchecked")
+    private Object collapse(Inner<V> n) {
+        if (n.count == 0)
+            return n.leaf;
+        if (n.count > 1 || n.leaf != null)
+            return n;
+
+        // a single child: merge the path of n, the edge and the path of the child
+        int b = n.nextChild(0);
+        Object child = n.findChild(b);
+        if (child instanceof Inner<?> c) {
+            byte[] prefix = new byte[n.prefix.length + 1 + c.prefix.length];
+            System.arraycopy(n.prefix, 0, prefix, 0, n.prefix.length);
+            prefix[n.prefix.length] = (byte) b;
+            System.arraycopy(c.prefix, 0, prefix, n.prefix.length + 1, c.prefix.length);
+            c.prefix = prefix;
+        }
+        return child;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Entry<String, V>> iterator() {
+        return new TreeIterator(root);
+    }
+
+    /**
+     * Returns an iterator over all entries whose key starts with prefix, in ascending key order.
+     * Only the subtree below the prefix is visited.
+     * @param prefix the common beginning of the keys.
+     * @return an Iterator over the entries with the given prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public Iterator<Entry<String, V>> prefixIterator(String prefix) {
+        byte[] p = bytes(prefix);
+        Object node = root;
+        int depth = 0;
+
+        while (node instanceof Inner<?> i && depth < p.length) {
+            Inner<V> n = (Inner<V>) i;
+            int m = prefixMatch(n, p, depth);
+            if (depth + m == p.length)
+                // the prefix ends within the path of n, so all keys below n match
+                return new TreeIterator(n);
+            if (m < n.prefix.length)
+                return new TreeIterator(null);
+            depth += n.prefix.length;
+            if (depth == p.length)
+                return new TreeIterator(n);
+            node = n.findChild(p[depth++] & 0xFF);
+        }
+
+        if (node instanceof Leaf<?> leaf && !startsWith(leaf.key, p))
+            node = null;
+        return new TreeIterator(node);
+    }
+
+    @Override
+    public DictionaryCursor<String, V> cursor() {
+        TreeIterator it = new TreeIterator(root);
+        return new DictionaryCursor<>() {
+            private Leaf<V> leaf = null;
+            // decoded from the UTF-8 bytes only when asked for
+            private String key = null;
+
+            @Override
+            public boolean advance() {
+                leaf = it.nextLeaf();
+                key = null;
+                return leaf != null;
+            }
+
+            @Override
+            public String key() {
+                if (leaf == null) throw new NoSuchElementException();
+                if (key == null)
+                    key = new String(leaf.key, StandardCharsets.UTF_8);
+                return key;
+            }
+
+            @Override
+            public V value() {
+                if (leaf == null) throw new NoSuchElementException();
+                return leaf.value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        int expectedModCount = modCount;
+        forEachR(root, action);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachR(Object node, BiConsumer<? super String, ? super V> action) {
+        if (node instanceof Leaf<?> l) {
+            action.accept(new String(l.key, StandardCharsets.UTF_8), (V) l.value);
+        } else if (node != null) {
+            Inner<V> n = (Inner<V>) node;
+            if (n.leaf != null)
+                forEachR(n.leaf, action);
+            for (int b = n.nextChild(0); b >= 0; b = n.nextChild(b + 1))
+                forEachR(n.findChild(b), action);
+        }
+    }
+
+    /**
+     * Iterates in order over the subtree of a node, using a stack of the inner nodes on the current path.
+     */
+    private class TreeIterator implements Iterator<Entry<String, V>> {
+        private final int expectedModCount = modCount;
+        private final Deque<Frame<V>> stack = new ArrayDeque<>();
+        private Leaf<V> next = null;
+
+        TreeIterator(Object start) {
+            if (start != null)
+                enter(start);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void enter(Object node) {
+            if (node instanceof Leaf<?> leaf) {
+                next = (Leaf<V>) leaf;
+            } else {
+                Inner<V> n = (Inner<V>) node;
+                stack.push(new Frame<>(n));
+                // a key ending at n comes before all keys below n
+                next = n.leaf;
+            }
+        }
+
+        private void advance() {
+            while (next == null && !stack.isEmpty()) {
+                Frame<V> f = stack.peek();
+                int b = f.node.nextChild(f.nextByte);
+                if (b < 0) {
+                    stack.pop();
+                } else {
+                    f.nextByte = b + 1;
+                    enter(f.node.findChild(b));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, V> next() {
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+
+            var entry = new Entry<>(new String(next.key, StandardCharsets.UTF_8), next.value);
+            next = null;
+            advance();
+            return entry;
+        }
+
+        /**
+         * Returns the next leaf without creating an Entry, or null at the end.
+         */
+        Leaf<V> nextLeaf() {
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+
+            Leaf<V> leaf = next;
+            if (leaf != null) {
+                next = null;
+                advance();
+            }
+            return leaf;
+        }
+    }
+
+    private static final class Frame<V> {
+        final Inner<V> node;
+        int nextByte = 0;
+
+        Frame(Inner<V> node) {
+            this.node = node;
+        }
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns how many bytes of the prefix of n match key from depth on.
+     */
+    private static int prefixMatch(Inner<?> n, byte[] key, int depth) {
+        int max = Math.min(n.prefix.length, key.length - depth);
+        int i = 0;
+        while (i < max && n.prefix[i] == key[depth + i])
+            i++;
+        return i;
+    }
+
+    private static int commonLength(byte[] a, byte[] b, int depth) {
+        int max = Math.min(a.length, b.length);
+        int i = depth;
+        while (i < max && a[i] == b[i])
+            i++;
+        return i - depth;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static final class Leaf<V> {
+        // the whole key, the bytes on the path to the leaf included
+        final byte[] key;
+        V value;
+
+        Leaf(byte[] key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private abstract static class Inner<V> {
+        // compressed path between the edge to this node and its children
+        byte[] prefix;
+        // entry whose key ends right after the prefix
+        Leaf<V> leaf;
+        int count;
+
+        Inner(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Returns the child for byte b or null.
+         */
+        abstract Object findChild(int b);
+
+        /**
+         * Adds a child for byte b, which must not have one yet.
+         * Returns this node or a bigger one that replaces it.
+         */
+        abstract Inner<V> addChild(int b, Object child);
+
+        /**
+         * Replaces the existing child for byte b.
+         */
+        abstract void replaceChild(int b, Object child);
+
+        /**
+         * Removes the existing child for byte b.
+         * Returns this node or a smaller one that replaces it.
+         */
+        abstract Inner<V> removeChild(int b);
+
+        /**
+         * Returns the smallest byte &gt;= from that has a child, or -1.
+         */
+        abstract int nextChild(int from);
+
+        /**
+         * Puts leaf below this node, whose prefix ends at depth of key.
+         */
+        Inner<V> put(byte[] key, int depth, Leaf<V> leaf) {
+            if (depth == key.length) {
+                this.leaf = leaf;
+                return this;
+            }
+            return addChild(key[depth] & 0xFF, leaf);
+        }
+
+        /**
+         * Copies all children of this node into n, which takes the place of this node.
+         */
+        <N extends Inner<V>> N moveTo(N n) {
+            n.leaf = leaf;
+            for (int b = nextChild(0); b >= 0; b = nextChild(b + 1))
+                n.addChild(b, findChild(b));
+            return n;
+        }
+    }
+
+    /**
+     * Inner node with up to capacity children and their bytes in sorted arrays.
+     */
+    private abstract static class SortedNode<V> extends Inner<V> {
+        final byte[] keys;
+        final Object[] children;
+
+        SortedNode(byte[] prefix, int capacity) {
+            super(prefix);
+            keys = new byte[capacity];
+            children = new Object[capacity];
+        }
+
+        @Override
+        Object findChild(int b) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) == b)
+                    return children[i];
+            }
+            return null;
+        }
+
+        /**
+         * Adds the child, there must be room for it.
+         */
+        void insertSorted(int b, Object child) {
+            int i = 0;
+            while (i < count && (keys[i] & 0xFF) < b)
+                i++;
+            System.arraycopy(keys, i, keys, i + 1, count - i);
+            System.arraycopy(children, i, children, i + 1, count - i);
+            keys[i] = (byte) b;
+            children[i] = child;
+            count++;
+        }
+
+        @Override
+        void replaceChild(int b, Object child) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) == b)
+                    children[i] = child;
+            }
+        }
+
+        void deleteSorted(int b) {
+            int i = 0;
+            while ((keys[i] & 0xFF) != b)
+                i++;
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(children, i + 1, children, i, count - i - 1);
+            children[--count] = null;
+        }
+
+        @Override
+        int nextChild(int from) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) >= from)
+                    return keys[i] & 0xFF;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Node4<V> extends SortedNode<V> {
+        Node4(byte[] prefix) {
+            super(prefix, 4);
+        }
+
+        @Override
+        Inner<V> addChild(int b, Object child) {
+            if (count == 4)
+                return moveTo(new Node16<V>(prefix)).addChild(b, child);
+            insertSorted(b, child);
+            return this;
+        }
+
+        @Override
+        Inner<V> removeChild(int b) {
+            deleteSorted(b);
+            return this;
+        }
+    }
+
+    private static final class Node16<V> extends SortedNode<V> {
+        Node16(byte[] prefix) {
+            super(prefix, 16);
+        }
+
+        @Override
+        Inner<V> addChild(int b, Object child) {
+            if (count == 16)
+                return moveTo(new Node48<V>(prefix)).addChild(b, child);
+            insertSorted(b, child);
+            return this;
+        }
+
+        @Override
+        Inner<V> removeChild(int b) {
+            deleteSorted(b);
+            return count <= 3 ? moveTo(new Node4<V>(prefix)) : this;
+        }
+    }
+
+    /**
+     * Inner node with up to 48 children and an index from each byte to the slot of its child.
+     */
+    private static final class Node48<V> extends Inner<V> {
+        // slot + 1 of the child for each byte, 0 for none
+        final byte[] index = new byte[256];
+        final Object[] children = new Object[48];
+
+        Node48(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        Object findChild(int b) {
+            int slot = index[b];
+            return slot == 0 ? null : children[slot - 1];
+        }
+
+        @Override
+        Inner<V> addChild(int b, Object child) {
+            if (count == 48)
+                return moveTo(new Node256<V>(prefix)).addChild(b, child);
+
+            int slot = 0;
+            while (children[slot] != null)
+                slot++;
+            children[slot] = child;
+            index[b] = (byte) (slot + 1);
+            count++;
+            return this;
+        }
+
+        @Override
+        void replaceChild(int b, Object child) {
+            children[index[b] - 1] = child;
+        }
+
+        @Override
+        Inner<V> removeChild(int b) {
+            children[index[b] - 1] = null;
+            index[b] = 0;
+            count--;
+            return count <= 12 ? moveTo(new Node16<V>(prefix)) : this;
+        }
+
+        @Override
+        int nextChild(int from) {
+            for (int b = from; b < 256; b++) {
+                if (index[b] != 0)
+                    return b;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Node256<V> extends Inner<V> {
+        final Object[] children = new Object[256];
+
+        Node256(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        Object findChild(int b) {
+            return children[b];
+        }
+
+        @Override
+        Inner<V> addChild(int b, Object child) {
+            children[b] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        void replaceChild(int b, Object child) {
+            children[b] = child;
+        }
+
+        @Override
+        Inner<V> removeChild(int b) {
+            children[b] = null;
+            count--;
+            return count <= 36 ? moveTo(new Node48<V>(prefix)) : this;
+        }
+
+        @Override
+        int nextChild(int from) {
+            for (int b = from; b < 256; b++) {
+                if (children[b] != null)
+                    return b;
+            }
+            return -1;
+        }
+    }
+}
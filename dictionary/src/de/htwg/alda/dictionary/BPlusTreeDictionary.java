@@ -0,0 +1,462 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface as B+ tree.
+ * <p>
+ * Every node holds up to order keys in a sorted array that is searched by binary search,
+ * so a lookup touches only about log_order(n) nodes instead of log_2(n).
+ * All entries are stored in the leaves; the inner nodes only hold separator keys.
+ * The leaves are linked from left to right, so the iterator returns the entries in ascending key order
+ * without going up the tree.
+ * <p>
+ * A node that overflows on insert is split into two halves; a node that underflows on remove
+ * borrows an entry from a sibling or is merged with it.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class BPlusTreeDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+    private static final int DEF_ORDER = 64;
+    private static final int MIN_ORDER = 3;
+
+    // maximal and minimal number of keys per node (except for the root)
+    private final int maxKeys;
+    private final int minKeys;
+
+    private Node<K> root;
+    private int size = 0;
+    private int modCount = 0;
+    private V oldValue = null;
+    // separator and new right node of the last split
+    private K splitKey = null;
+
+    public BPlusTreeDictionary() {
+        this(DEF_ORDER);
+    }
+
+    /**
+     * @param order maximal number of keys per node, at least 3.
+     */
+    public BPlusTreeDictionary(int order) {
+        if (order < MIN_ORDER)
+            throw new IllegalArgumentException("order must be at least " + MIN_ORDER + ": " + order);
+        this.maxKeys = order;
+        this.minKeys = order / 2;
+        this.root = new Leaf<>(maxKeys);
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        oldValue = null;
+        Node<K> right = insertR(key, value, root);
+
+        // the root was split, the tree grows by one level
+        if (right != null) {
+            Inner<K> newRoot = new Inner<>(maxKeys);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.n = 1;
+            root = newRoot;
+        }
+
+        modCount++;
+        return oldValue;
+    }
+
+    /**
+     * Inserts into the subtree of p.
+     * Returns the new right sibling of p if p was split, otherwise null.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<K> insertR(K key, V value, Node<K> p) {
+        if (p instanceof Leaf<K> leaf) {
+            int i = leaf.indexOf(key);
+            if (i >= 0) {
+                // key gefunden, ersetzen
+                oldValue = (V) leaf.values[i];
+                leaf.values[i] = value;
+                return null;
+            }
+
+            leaf.insertAt(-i - 1, key, value);
+            size++;
+            return leaf.n > maxKeys ? splitLeaf(leaf) : null;
+        }
+
+        Inner<K> inner = (Inner<K>) p;
+        int i = inner.childIndex(key);
+        Node<K> right = insertR(key, value, inner.children[i]);
+        if (right == null)
+            return null;
+
+        inner.insertAt(i, splitKey, right);
+        return inner.n > maxKeys ? splitInner(inner) : null;
+    }
+
+    private Node<K> splitLeaf(Leaf<K> leaf) {
+        Leaf<K> right = new Leaf<>(maxKeys);
+        int mid = leaf.n / 2;
+
+        right.n = leaf.n - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.n);
+        System.arraycopy(leaf.values, mid, right.values, 0, right.n);
+        clear(leaf.keys, mid, leaf.n);
+        clear(leaf.values, mid, leaf.n);
+        leaf.n = mid;
+
+        right.next = leaf.next;
+        leaf.next = right;
+        splitKey = right.key(0);
+        return right;
+    }
+
+    private Node<K> splitInner(Inner<K> inner) {
+        Inner<K> right = new Inner<>(maxKeys);
+        int mid = inner.n / 2;
+
+        // the middle key moves up, it separates both halves
+        splitKey = inner.key(mid);
+        right.n = inner.n - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.n);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.n + 1);
+        clear(inner.keys, mid, inner.n);
+        clear(inner.children, mid + 1, inner.n + 1);
+        inner.n = mid;
+        return right;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V search(K key) {
+        Node<K> p = root;
+        while (p instanceof Inner<K> inner)
+            p = inner.children[inner.childIndex(key)];
+
+        Leaf<K> leaf = (Leaf<K>) p;
+        int i = leaf.indexOf(key);
+        return i < 0 ? null : (V) leaf.values[i];
+    }
+
+    @Override
+    public V remove(K key) {
+        oldValue = null;
+        removeR(key, root);
+
+        // the root lost its last separator, the tree shrinks by one level
+        if (root instanceof Inner<K> inner && inner.n == 0)
+            root = inner.children[0];
+
+        modCount++;
+        return oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeR(K key, Node<K> p) {
+        if (p instanceof Leaf<K> leaf) {
+            int i = leaf.indexOf(key);
+            if (i >= 0) {
+                oldValue = (V) leaf.values[i];
+                leaf.removeAt(i);
+                size--;
+            }
+            return;
+        }
+
+        Inner<K> inner = (Inner<K>) p;
+        int i = inner.childIndex(key);
+        Node<K> child = inner.children[i];
+        removeR(key, child);
+
+        if (child.n < minKeys)
+            rebalance(inner, i);
+    }
+
+    /**
+     * Fixes the underflow of child i of parent by borrowing from or merging with a sibling.
+     */
+    private void rebalance(Inner<K> parent, int i) {
+        Node<K> child = parent.children[i];
+        Node<K> left = i > 0 ? parent.children[i - 1] : null;
+        Node<K> right = i < parent.n ? parent.children[i + 1] : null;
+
+        if (left != null && left.n > minKeys) {
+            borrowFromLeft(parent, i, left, child);
+        } else if (right != null && right.n > minKeys) {
+            borrowFromRight(parent, i, child, right);
+        } else if (left != null) {
+            merge(parent, i - 1, left, child);
+        } else if (right != null) {
+            merge(parent, i, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Inner<K> parent, int i, Node<K> left, Node<K> child) {
+        if (child instanceof Leaf<K> leaf) {
+            Leaf<K> l = (Leaf<K>) left;
+            leaf.insertAt(0, l.key(l.n - 1), l.values[l.n - 1]);
+            l.removeAt(l.n - 1);
+            parent.keys[i - 1] = leaf.keys[0];
+        } else {
+            // the separator moves down, the last key of left moves up
+            Inner<K> c = (Inner<K>) child;
+            Inner<K> l = (Inner<K>) left;
+            System.arraycopy(c.keys, 0, c.keys, 1, c.n);
+            System.arraycopy(c.children, 0, c.children, 1, c.n + 1);
+            c.keys[0] = parent.keys[i - 1];
+            c.children[0] = l.children[l.n];
+            c.n++;
+            parent.keys[i - 1] = l.keys[l.n - 1];
+            l.keys[l.n - 1] = null;
+            l.children[l.n] = null;
+            l.n--;
+        }
+    }
+
+    private void borrowFromRight(Inner<K> parent, int i, Node<K> child, Node<K> right) {
+        if (child instanceof Leaf<K> leaf) {
+            Leaf<K> r = (Leaf<K>) right;
+            leaf.insertAt(leaf.n, r.key(0), r.values[0]);
+            r.removeAt(0);
+            parent.keys[i] = r.keys[0];
+        } else {
+            // the separator moves down, the first key of right moves up
+            Inner<K> c = (Inner<K>) child;
+            Inner<K> r = (Inner<K>) right;
+            c.keys[c.n] = parent.keys[i];
+            c.children[c.n + 1] = r.children[0];
+            c.n++;
+            parent.keys[i] = r.keys[0];
+            System.arraycopy(r.keys, 1, r.keys, 0, r.n - 1);
+            System.arraycopy(r.children, 1, r.children, 0, r.n);
+            r.keys[r.n - 1] = null;
+            r.children[r.n] = null;
+            r.n--;
+        }
+    }
+
+    /**
+     * Appends right to left and removes separator k and right from parent.
+     */
+    private void merge(Inner<K> parent, int k, Node<K> left, Node<K> right) {
+        if (left instanceof Leaf<K> l) {
+            Leaf<K> r = (Leaf<K>) right;
+            System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+            System.arraycopy(r.values, 0, l.values, l.n, r.n);
+            l.n += r.n;
+            l.next = r.next;
+        } else {
+            // the separator moves down between both halves
+            Inner<K> l = (Inner<K>) left;
+            Inner<K> r = (Inner<K>) right;
+            l.keys[l.n] = parent.keys[k];
+            System.arraycopy(r.keys, 0, l.keys, l.n + 1, r.n);
+            System.arraycopy(r.children, 0, l.children, l.n + 1, r.n + 1);
+            l.n += r.n + 1;
+        }
+
+        System.arraycopy(parent.keys, k + 1, parent.keys, k, parent.n - k - 1);
+        System.arraycopy(parent.children, k + 2, parent.children, k + 1, parent.n - k - 1);
+        parent.keys[parent.n - 1] = null;
+        parent.children[parent.n] = null;
+        parent.n--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of levels of this tree, 1 for a single leaf.
+     * @return the height of the tree.
+     */
+    public int height() {
+        int h = 1;
+        for (Node<K> p = root; p instanceof Inner<K> inner; p = inner.children[0])
+            h++;
+        return h;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private Leaf<K> leaf = firstLeaf();
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                // skip to the next leaf that is not empty
+                while (leaf != null && i >= leaf.n) {
+                    leaf = leaf.next;
+                    i = 0;
+                }
+                return leaf != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Entry<K, V> next() {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+
+                var entry = new Entry<>(leaf.key(i), (V) leaf.values[i]);
+                i++;
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        return new DictionaryCursor<>() {
+            private final int expectedModCount = modCount;
+            private Leaf<K> leaf = firstLeaf();
+            private int i = -1;
+
+            @Override
+            public boolean advance() {
+                if (expectedModCount != modCount) throw new ConcurrentModificationException();
+
+                if (leaf != null)
+                    i++;
+                // skip to the next leaf that is not empty
+                while (leaf != null && i >= leaf.n) {
+                    leaf = leaf.next;
+                    i = 0;
+                }
+                return leaf != null;
+            }
+
+            @Override
+            public K key() {
+                if (leaf == null || i < 0) throw new NoSuchElementException();
+                return leaf.key(i);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V value() {
+                if (leaf == null || i < 0) throw new NoSuchElementException();
+                return (V) leaf.values[i];
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (Leaf<K> leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.n; i++)
+                action.accept(leaf.key(i), (V) leaf.values[i]);
+        }
+        if (expectedModCount != modCount) throw new ConcurrentModificationException();
+    }
+
+    private Leaf<K> firstLeaf() {
+        Node<K> p = root;
+        while (p instanceof Inner<K> inner)
+            p = inner.children[0];
+        return (Leaf<K>) p;
+    }
+
+    private static void clear(Object[] a, int from, int to) {
+        for (int i = from; i < to; i++)
+            a[i] = null;
+    }
+
+    private abstract static class Node<K extends Comparable<K>> {
+        // one more slot than allowed, so a node can overflow before it is split
+        final Object[] keys;
+        int n;
+
+        Node(int maxKeys) {
+            this.keys = new Object[maxKeys + 1];
+            this.n = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        K key(int i) {
+            return (K) keys[i];
+        }
+
+        /**
+         * Binary search for key; returns its index or (-(insertion point) - 1).
+         */
+        int indexOf(K key) {
+            int li = 0;
+            int re = n - 1;
+            while (li <= re) {
+                int m = (li + re) >>> 1;
+                int c = key(m).compareTo(key);
+                if (c < 0) li = m + 1;
+                else if (c > 0) re = m - 1;
+                else return m;
+            }
+            return -(li + 1);
+        }
+    }
+
+    private static final class Leaf<K extends Comparable<K>> extends Node<K> {
+        final Object[] values;
+        Leaf<K> next;
+
+        Leaf(int maxKeys) {
+            super(maxKeys);
+            this.values = new Object[maxKeys + 1];
+        }
+
+        void insertAt(int i, K key, Object value) {
+            System.arraycopy(keys, i, keys, i + 1, n - i);
+            System.arraycopy(values, i, values, i + 1, n - i);
+            keys[i] = key;
+            values[i] = value;
+            n++;
+        }
+
+        void removeAt(int i) {
+            System.arraycopy(keys, i + 1, keys, i, n - i - 1);
+            System.arraycopy(values, i + 1, values, i, n - i - 1);
+            n--;
+            keys[n] = null;
+            values[n] = null;
+        }
+    }
+
+    private static final class Inner<K extends Comparable<K>> extends Node<K> {
+        // n keys separate n + 1 children; keys[i] is the smallest key in the subtree of children[i + 1]
+        final Node<K>[] children;
+
+        @SuppressWarnings("unchecked")
+        Inner(int maxKeys) {
+            super(maxKeys);
+            this.children = new Node[maxKeys + 2];
+        }
+
+        /**
+         * Returns the index of the child whose subtree may contain key.
+         */
+        int childIndex(K key) {
+            int i = indexOf(key);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        /**
+         * Inserts separator key with the new child right behind child i.
+         */
+        void insertAt(int i, K key, Node<K> right) {
+            System.arraycopy(keys, i, keys, i + 1, n - i);
+            System.arraycopy(children, i + 1, children, i + 2, n - i);
+            keys[i] = key;
+            children[i + 1] = right;
+            n++;
+        }
+    }
+}
@@ -3,9 +3,17 @@
 
 package de.htwg.alda.dictionary;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Implementation of the de.htwg.alda.dictionary.Dictionary interface as AVL tree.
@@ -14,16 +22,24 @@ import java.util.NoSuchElementException;
  * or by a Comparator provided at set creation time, depending on which constructor is used.
  * <p>
  * An iterator for this dictionary is implemented by using the parent node reference.
+ * <p>
+ * Every node also stores the size of its subtree, so the order statistics
+ * select, rank and countRange take O(log n).
+ * <p>
+ * With metrics enabled (see Instrumented), the nodes visited per search, the rotations
+ * and the height of the tree are recorded.
  *
  * @param <K> Key.
  * @param <V> Value.
  */
-public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+public class BinaryTreeDictionary<K extends Comparable<K>, V> implements OrderedDictionary<K, V>, Instrumented {
 
     private Node<K, V> root = null;
     private int size = 0;
     private int modCount = 0;
     private V oldValue = null;
+    // null while metrics are disabled
+    private DictionaryMetrics metrics = null;
 
     private static void printLevel(int level) {
         if (level == 0) {
@@ -39,6 +55,10 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
     public V insert(K key, V value) {
         setRoot(insertR(key, value, root));
         modCount++;
+        if (metrics != null) {
+            metrics.recordInsert();
+            metrics.setTreeHeight(getHeight(root) + 1);
+        }
         return oldValue;
     }
 
@@ -66,10 +86,44 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
 
     @Override
     public V search(K key) {
+        if (metrics != null) metrics.recordSearch(depth(key));
         var res = searchR(key, root);
         return res == null ? null : res.value;
     }
 
+    /**
+     * Returns the number of nodes a search for key visits.
+     */
+    private int depth(K key) {
+        int n = 0;
+        for (Node<K, V> p = root; p != null; n++) {
+            int c = key.compareTo(p.key);
+            if (c < 0) p = p.left;
+            else if (c > 0) p = p.right;
+            else return n + 1;
+        }
+        return n;
+    }
+
+    @Override
+    public DictionaryMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new DictionaryMetrics();
+            metrics.setTreeHeight(getHeight(root) + 1);
+        }
+        return metrics;
+    }
+
+    @Override
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    @Override
+    public DictionaryMetrics metrics() {
+        return metrics;
+    }
+
     private Node<K, V> searchR(K key, Node<K, V> p) {
         if (p == null) return null;
         else if (key.compareTo(p.key) < 0) {
@@ -81,10 +135,109 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         }
     }
 
+    /**
+     * Looks up all keys.
+     * If the batch is large compared to the tree (m log n &gt; n), the keys are sorted and merged
+     * with an inorder walk over the tree, which costs O(n + m log m) instead of O(m log n)
+     * and visits every node at most once.
+     * A smaller batch descends key by key, with one comparison per level instead of the two of search.
+     */
+    @Override
+    public void searchAll(K[] keys, V[] out) {
+        if (out.length < keys.length)
+            throw new IllegalArgumentException("out is shorter than keys");
+        if (metrics != null) {
+            for (K key : keys)
+                metrics.recordSearch(depth(key));
+        }
+
+        int log = 32 - Integer.numberOfLeadingZeros(size);
+        if ((long) keys.length * log <= size) {
+            for (int i = 0; i < keys.length; i++) {
+                K key = keys[i];
+                Node<K, V> p = root;
+                // written with branches: a conditional move would make every node load wait for the comparison
+                while (p != null) {
+                    int c = key.compareTo(p.key);
+                    if (c < 0) p = p.left;
+                    else if (c > 0) p = p.right;
+                    else break;
+                }
+                out[i] = p == null ? null : p.value;
+            }
+            return;
+        }
+
+        Node<K, V> p = (root != null) ? leftMostDescendant(root) : null;
+        for (int idx : SortOrder.of(keys)) {
+            K key = keys[idx];
+            while (p != null && p.key.compareTo(key) < 0)
+                p = (p.right != null) ? leftMostDescendant(p.right) : parentOfLeftMostAncestor(p);
+            out[idx] = (p != null && p.key.compareTo(key) == 0) ? p.value : null;
+        }
+    }
+
+    /**
+     * Inserts all entries.
+     * A batch that is large compared to the tree is merged with the entries of the tree
+     * and the tree is rebuilt balanced in O(n + m log m), like buildFromSorted;
+     * a small batch is inserted entry by entry in O(m log n).
+     */
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        List<Entry<K, V>> batch = new ArrayList<>();
+        for (Entry<K, V> e : entries)
+            batch.add(e);
+
+        int log = 32 - Integer.numberOfLeadingZeros(size);
+        if ((long) batch.size() * log < size) {
+            for (Entry<K, V> e : batch)
+                insert(e.getKey(), e.getValue());
+            return;
+        }
+
+        // stable, so of equal keys the one inserted last comes last
+        batch.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+
+        List<Entry<K, V>> merged = new ArrayList<>(size + batch.size());
+        Iterator<Entry<K, V>> it = iterator();
+        Entry<K, V> old = it.hasNext() ? it.next() : null;
+        for (int i = 0; i < batch.size(); i++) {
+            Entry<K, V> e = batch.get(i);
+            // the last entry of a run of equal keys wins
+            if (i + 1 < batch.size() && batch.get(i + 1).getKey().compareTo(e.getKey()) == 0)
+                continue;
+
+            while (old != null && old.getKey().compareTo(e.getKey()) < 0) {
+                merged.add(old);
+                old = it.hasNext() ? it.next() : null;
+            }
+            if (old != null && old.getKey().compareTo(e.getKey()) == 0)
+                old = it.hasNext() ? it.next() : null;
+            merged.add(e);
+        }
+        while (old != null) {
+            merged.add(old);
+            old = it.hasNext() ? it.next() : null;
+        }
+
+        setRoot(buildR(merged, 0, merged.size() - 1));
+        size = merged.size();
+        modCount++;
+        if (metrics != null) {
+            metrics.recordInserts(batch.size());
+            metrics.setTreeHeight(getHeight(root) + 1);
+        }
+    }
+
     @Override
     public V remove(K key) {
         setRoot(removeR(key, root));
         modCount++;
+        if (metrics != null) {
+            metrics.recordRemove();
+            metrics.setTreeHeight(getHeight(root) + 1);
+        }
         return oldValue;
     }
 
@@ -106,7 +259,7 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
                 var min = getMin(p.right);
                 p.key = min.key;
                 p.value = min.value;
-                p.setRight(removeR(p.key, p.right));
+                p.setRight(removeMinR(p.right));
             }
         }
 
@@ -114,6 +267,14 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         return p;
     }
 
+    private Node<K, V> removeMinR(Node<K, V> p) {
+        if (p.left == null)
+            return p.right;
+
+        p.setLeft(removeMinR(p.left));
+        return balance(p);
+    }
+
     private Node<K, V> getMin(Node<K, V> p) {
         while (p.left != null)
             p = p.left;
@@ -125,10 +286,115 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         return size;
     }
 
+    /**
+     * Replaces the content of this dictionary by the given entries.
+     * <p>
+     * The entries must be sorted by strictly ascending keys, as returned for example by the iterator
+     * of a SortedArrayDictionary or a BinaryTreeDictionary.
+     * Instead of inserting them one by one, a perfectly balanced tree is built bottom-up in O(n),
+     * so no balancing or rotation is needed.
+     * @param entries entries sorted by strictly ascending keys.
+     * @throws IllegalArgumentException if the keys are not strictly ascending.
+     */
+    public void buildFromSorted(Iterator<? extends Entry<K, V>> entries) {
+        List<Entry<K, V>> sorted = new ArrayList<>();
+        while (entries.hasNext()) {
+            Entry<K, V> e = entries.next();
+            if (!sorted.isEmpty() && sorted.get(sorted.size() - 1).getKey().compareTo(e.getKey()) >= 0)
+                throw new IllegalArgumentException("keys are not strictly ascending: " + e.getKey());
+            sorted.add(e);
+        }
+
+        setRoot(buildR(sorted, 0, sorted.size() - 1));
+        size = sorted.size();
+        modCount++;
+    }
+
+    private Node<K, V> buildR(List<Entry<K, V>> sorted, int lo, int hi) {
+        if (lo > hi)
+            return null;
+
+        // the middle entry becomes the root, so both subtrees differ in size by at most one
+        int mid = (lo + hi) >>> 1;
+        Node<K, V> left = buildR(sorted, lo, mid - 1);
+        Entry<K, V> e = sorted.get(mid);
+        Node<K, V> p = new Node<>(e.getKey(), e.getValue());
+        p.setLeft(left);
+        p.setRight(buildR(sorted, mid + 1, hi));
+        update(p);
+        return p;
+    }
+
+    /**
+     * Writes all entries to file as binary snapshot (see SnapshotFile) in ascending key order.
+     * The tree shape is not stored: load builds a perfectly balanced tree from the sorted entries in O(n).
+     * A SortedArrayDictionary can load the same file.
+     * @param file file to be written, an existing file is replaced.
+     * @param keyCodec converts the keys to bytes.
+     * @param valueCodec converts the values to bytes.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path file, SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        var writer = new SnapshotFile.Writer(SnapshotFile.SORTED, size, 0);
+        forEachR(root, (key, value) -> {
+            writer.write(key, keyCodec);
+            writer.write(value, valueCodec);
+        });
+        writer.writeTo(file);
+    }
+
+    /**
+     * Reads a dictionary from a binary snapshot written by save of a BinaryTreeDictionary
+     * or a SortedArrayDictionary. The tree is built like in buildFromSorted, without comparisons or rotations.
+     * @param file snapshot file.
+     * @param keyCodec converts bytes to keys, must match the codec used by save.
+     * @param valueCodec converts bytes to values, must match the codec used by save.
+     * @return the loaded dictionary.
+     * @throws IOException if the file cannot be read, is no sorted snapshot of a supported version or is corrupt.
+     */
+    public static <K extends Comparable<K>, V> BinaryTreeDictionary<K, V> load(Path file,
+            SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        var reader = new SnapshotFile.Reader(file, SnapshotFile.SORTED);
+        BinaryTreeDictionary<K, V> dict = new BinaryTreeDictionary<>();
+        try {
+            dict.setRoot(dict.buildR(reader, keyCodec, valueCodec, 0, reader.count() - 1));
+        } catch (RuntimeException e) {
+            throw reader.corrupt(e);
+        }
+        reader.finish();
+        dict.size = reader.count();
+        return dict;
+    }
+
+    private Node<K, V> buildR(SnapshotFile.Reader reader, SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec,
+                              int lo, int hi) {
+        if (lo > hi)
+            return null;
+
+        // inorder, so the entries are read in the order of the file
+        int mid = (lo + hi) >>> 1;
+        Node<K, V> left = buildR(reader, keyCodec, valueCodec, lo, mid - 1);
+        Node<K, V> p = new Node<>(reader.readAscending(keyCodec), reader.read(valueCodec));
+        p.setLeft(left);
+        p.setRight(buildR(reader, keyCodec, valueCodec, mid + 1, hi));
+        update(p);
+        return p;
+    }
+
     @Override
     public Iterator<Entry<K, V>> iterator() {
+        return iterator((root != null) ? leftMostDescendant(root) : null);
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iteratorFrom(int k) {
+        if (k < 0 || k > size) throw new IndexOutOfBoundsException(k);
+        return iterator(k == size ? null : selectNode(k));
+    }
+
+    private Iterator<Entry<K, V>> iterator(Node<K, V> first) {
         return new Iterator<>() {
-            Node<K, V> p = (root != null) ? leftMostDescendant(root) : null;
+            Node<K, V> p = first;
             final int expectedMod = modCount;
 
             @Override
@@ -154,6 +420,184 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         };
     }
 
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        // same walk as the iterator, but without an Entry per node
+        return new DictionaryCursor<>() {
+            private final int expectedMod = modCount;
+            private Node<K, V> p = null;
+            private boolean started = false;
+
+            @Override
+            public boolean advance() {
+                if (expectedMod != modCount) throw new ConcurrentModificationException();
+
+                if (!started) {
+                    started = true;
+                    p = (root != null) ? leftMostDescendant(root) : null;
+                } else if (p != null) {
+                    p = (p.right != null) ? leftMostDescendant(p.right) : parentOfLeftMostAncestor(p);
+                }
+                return p != null;
+            }
+
+            @Override
+            public K key() {
+                if (p == null) throw new NoSuchElementException();
+                return p.key;
+            }
+
+            @Override
+            public V value() {
+                if (p == null) throw new NoSuchElementException();
+                return p.value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedMod = modCount;
+        forEachR(root, action);
+        if (expectedMod != modCount) throw new ConcurrentModificationException();
+    }
+
+    private void forEachR(Node<K, V> p, BiConsumer<? super K, ? super V> action) {
+        // inorder, the recursion depth is the height of the tree
+        if (p == null) return;
+        forEachR(p.left, action);
+        action.accept(p.key, p.value);
+        forEachR(p.right, action);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new RankSpliterator(0, size, modCount);
+    }
+
+    /**
+     * Spliterator over the entries with rank from index to fence.
+     * Splitting halves the rank range; thanks to the subtree sizes both halves know their exact size,
+     * and the first node of a half is found by select in O(log n) when it starts.
+     */
+    private class RankSpliterator implements Spliterator<Entry<K, V>> {
+        private int index;
+        private final int fence;
+        private final int expectedMod;
+        // node with rank index, null until the traversal starts
+        private Node<K, V> p = null;
+
+        RankSpliterator(int index, int fence, int expectedMod) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedMod = expectedMod;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index || p != null) return null;
+            var prefix = new RankSpliterator(index, mid, expectedMod);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (expectedMod != modCount) throw new ConcurrentModificationException();
+            if (index >= fence) return false;
+
+            if (p == null) p = selectNode(index);
+            Entry<K, V> entry = p.asEntry();
+            index++;
+            if (index < fence)
+                p = (p.right != null) ? leftMostDescendant(p.right) : parentOfLeftMostAncestor(p);
+            action.accept(entry);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            if (expectedMod != modCount) throw new ConcurrentModificationException();
+            if (index >= fence) return;
+            if (p == null) p = selectNode(index);
+            for (; index < fence; index++) {
+                action.accept(p.asEntry());
+                if (index + 1 < fence)
+                    p = (p.right != null) ? leftMostDescendant(p.right) : parentOfLeftMostAncestor(p);
+            }
+            if (expectedMod != modCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | ORDERED | SORTED | DISTINCT | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return Comparator.comparing(Entry::getKey);
+        }
+    }
+
+    @Override
+    public Entry<K, V> select(int k) {
+        if (k < 0 || k >= size) throw new IndexOutOfBoundsException(k);
+        return selectNode(k).asEntry();
+    }
+
+    private Node<K, V> selectNode(int k) {
+        Node<K, V> p = root;
+        while (true) {
+            int leftSize = getSize(p.left);
+            if (k < leftSize) {
+                p = p.left;
+            } else if (k > leftSize) {
+                // skip the left subtree and p itself
+                k -= leftSize + 1;
+                p = p.right;
+            } else {
+                return p;
+            }
+        }
+    }
+
+    @Override
+    public int rank(K key) {
+        return rank(key, false);
+    }
+
+    @Override
+    public int countRange(K from, K to) {
+        if (from.compareTo(to) > 0) return 0;
+        return rank(to, true) - rank(from, false);
+    }
+
+    /**
+     * Returns the number of keys smaller than key, or smaller or equal if inclusive is true.
+     */
+    private int rank(K key, boolean inclusive) {
+        int r = 0;
+        Node<K, V> p = root;
+        while (p != null) {
+            int c = key.compareTo(p.key);
+            if (c < 0) {
+                p = p.left;
+            } else if (c > 0) {
+                r += getSize(p.left) + 1;
+                p = p.right;
+            } else {
+                return r + getSize(p.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return r;
+    }
+
     private Node<K, V> leftMostDescendant(Node<K, V> p) {
         while (p.left != null)
             p = p.left;
@@ -192,6 +636,18 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         return node == null ? -1 : node.height;
     }
 
+    private int getSize(Node<K, V> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Recomputes height and subtree size of p from its children.
+     */
+    private void update(Node<K, V> p) {
+        p.height = Math.max(getHeight(p.left), getHeight(p.right)) + 1;
+        p.size = getSize(p.left) + getSize(p.right) + 1;
+    }
+
     private int getBalance(Node<K, V> p) {
         return p == null ? 0 : getHeight(p.right) - getHeight(p.left);
     }
@@ -199,7 +655,7 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
     private Node<K, V> balance(Node<K, V> p) {
         if (p == null) return null;
 
-        p.height = Math.max(getHeight(p.left), getHeight(p.right)) + 1;
+        update(p);
         if (getBalance(p) == -2) {
             if (getBalance(p.left) <= 0) {
                 p = rotateRight(p);
@@ -217,20 +673,22 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
     }
 
     private Node<K, V> rotateRight(Node<K, V> p) {
+        if (metrics != null) metrics.recordRotation();
         Node<K, V> q = p.left;
         p.setLeft(q.right);
         q.setRight(p);
-        p.height = Math.max(getHeight(p.left), getHeight(p.right)) + 1;
-        q.height = Math.max(getHeight(q.left), getHeight(q.right)) + 1;
+        update(p);
+        update(q);
         return q;
     }
 
     private Node<K, V> rotateLeft(Node<K, V> p) {
+        if (metrics != null) metrics.recordRotation();
         Node<K, V> q = p.right;
         p.setRight(q.left);
         q.setLeft(p);
-        p.height = Math.max(getHeight(p.left), getHeight(p.right)) + 1;
-        q.height = Math.max(getHeight(q.left), getHeight(q.right)) + 1;
+        update(p);
+        update(q);
         return q;
     }
 
@@ -253,6 +711,7 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
         K key;
         V value;
         int height;
+        int size;
         Node<K, V> left;
         Node<K, V> right;
         Node<K, V> parent;
@@ -271,6 +730,7 @@ public class BinaryTreeDictionary<K extends Comparable<K>, V> implements Diction
             key = k;
             value = v;
             height = 0;
+            size = 1;
             left = null;
             right = null;
             parent = null;
@@ -0,0 +1,87 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Blocked Bloom filter over the hash codes of objects.
+ * <p>
+ * All bits of a key lie in one block of 512 bits (one cache line), so a lookup costs at most one cache miss
+ * instead of one per bit. The block is chosen by the upper half of a 64-bit mix of the hash code,
+ * the bits within the block by 9-bit slices of a second mix.
+ * The false positive rate is slightly higher than that of a plain Bloom filter with the same number of bits,
+ * since the keys do not spread evenly over the blocks.
+ * <p>
+ * Keys cannot be removed; a filter is rebuilt instead.
+ */
+final class BlockedBloomFilter {
+    private static final int LONGS_PER_BLOCK = 8;
+    private static final int BLOCK_BITS = 64 * LONGS_PER_BLOCK;
+    // 9-bit slices of one long
+    private static final int MAX_HASHES = 7;
+
+    private final long[] bits;
+    private final int blocks;
+    private final int hashes;
+
+    /**
+     * @param expectedKeys number of keys the filter is sized for.
+     * @param bitsPerKey bits per key, 10 gives a false positive rate of about 1%.
+     */
+    BlockedBloomFilter(int expectedKeys, int bitsPerKey) {
+        long totalBits = Math.max(1L, (long) expectedKeys) * bitsPerKey;
+        blocks = (int) Math.max(1, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        bits = new long[blocks * LONGS_PER_BLOCK];
+        // k = ln 2 * bits per key is optimal
+        hashes = Math.max(1, Math.min(MAX_HASHES, (int) Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    void add(Object key) {
+        long h = mix(key.hashCode());
+        int base = blockOf(h);
+        long probes = mix(h);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (probes >>> (9 * i)) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Returns false if key has certainly not been added, true if it may have been added.
+     */
+    boolean mightContain(Object key) {
+        long h = mix(key.hashCode());
+        int base = blockOf(h);
+        long probes = mix(h);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (probes >>> (9 * i)) & (BLOCK_BITS - 1);
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the false positive rate from the share of set bits: a missing key passes
+     * if all its bits happen to be set.
+     */
+    double estimatedFalsePositiveRate() {
+        long set = 0;
+        for (long word : bits)
+            set += Long.bitCount(word);
+        return Math.pow((double) set / (64L * bits.length), hashes);
+    }
+
+    long memoryBytes() {
+        return 8L * bits.length;
+    }
+
+    private int blockOf(long h) {
+        // maps the upper 32 bits evenly onto 0 .. blocks - 1 without a division
+        return (int) (((h >>> 32) * blocks) >>> 32) * LONGS_PER_BLOCK;
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return h ^ (h >>> 32);
+    }
+}
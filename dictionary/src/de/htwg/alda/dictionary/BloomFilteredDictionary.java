@@ -0,0 +1,201 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Wrapper around any de.htwg.alda.dictionary.Dictionary that answers most searches for missing keys
+ * with a blocked Bloom filter, without asking the wrapped dictionary.
+ * <p>
+ * Every inserted key is added to the filter, so a key the filter rejects is certainly missing.
+ * A key the filter lets through is searched in the wrapped dictionary as usual.
+ * The filter cannot forget keys:
+ * <ul>
+ *     <li>Removed keys stay in the filter and only cost a search in the wrapped dictionary.
+ *     After more than size() / 4 removes the filter is rebuilt from the remaining keys.</li>
+ *     <li>The filter is sized for twice the number of keys at its last rebuild.
+ *     When the dictionary grows beyond that, the filter is rebuilt with twice the size.</li>
+ * </ul>
+ * A rebuild takes O(n), so inserts and removes stay O(1) amortized on top of the wrapped dictionary.
+ * <p>
+ * The expected and the observed false positive rate as well as the memory of the filter can be queried.
+ * Like the wrapped dictionaries, a BloomFilteredDictionary is not thread-safe.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class BloomFilteredDictionary<K, V> implements Dictionary<K, V> {
+    private static final int DEF_BITS_PER_KEY = 10;
+    private static final int MIN_CAPACITY = 64;
+
+    private final Dictionary<K, V> dict;
+    private final int bitsPerKey;
+    private BlockedBloomFilter filter;
+    // number of keys the filter is sized for
+    private int capacity;
+    // removes since the last rebuild
+    private int removed;
+
+    private long filtered = 0;
+    private long falsePositives = 0;
+    private long rebuilds = 0;
+
+    public BloomFilteredDictionary(Dictionary<K, V> dict) {
+        this(dict, DEF_BITS_PER_KEY);
+    }
+
+    /**
+     * @param dict the dictionary to be filtered, it may already contain entries.
+     * @param bitsPerKey bits of the filter per key, 10 gives a false positive rate of about 1%.
+     */
+    public BloomFilteredDictionary(Dictionary<K, V> dict, int bitsPerKey) {
+        if (bitsPerKey < 1)
+            throw new IllegalArgumentException("bitsPerKey must be at least 1: " + bitsPerKey);
+        this.dict = dict;
+        this.bitsPerKey = bitsPerKey;
+        rebuild();
+    }
+
+    @Override
+    public V search(K key) {
+        if (!filter.mightContain(key)) {
+            filtered++;
+            return null;
+        }
+        V value = dict.search(key);
+        if (value == null)
+            falsePositives++;
+        return value;
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        V old = dict.insert(key, value);
+        if (dict.size() > capacity)
+            rebuild();
+        else
+            filter.add(key);
+        return old;
+    }
+
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        // the keys are needed twice, but entries may be an Iterable that can be traversed only once
+        Collection<? extends Entry<K, V>> all = entries instanceof Collection<? extends Entry<K, V>> c ? c : copyOf(entries);
+        dict.insertAll(all);
+        if (dict.size() > capacity) {
+            rebuild();
+        } else {
+            for (Entry<K, V> e : all)
+                filter.add(e.getKey());
+        }
+    }
+
+    private static <K, V> List<Entry<K, V>> copyOf(Iterable<? extends Entry<K, V>> entries) {
+        List<Entry<K, V>> list = new ArrayList<>();
+        for (Entry<K, V> e : entries)
+            list.add(e);
+        return list;
+    }
+
+    @Override
+    public V remove(K key) {
+        V old = dict.remove(key);
+        if (old != null && ++removed > dict.size() / 4)
+            rebuild();
+        return old;
+    }
+
+    /**
+     * Builds a new filter from the keys of the wrapped dictionary, sized for twice their number.
+     */
+    private void rebuild() {
+        capacity = Math.max(MIN_CAPACITY, 2 * dict.size());
+        filter = new BlockedBloomFilter(capacity, bitsPerKey);
+        DictionaryCursor<K, V> c = dict.cursor();
+        while (c.advance())
+            filter.add(c.key());
+        removed = 0;
+        rebuilds++;
+    }
+
+    @Override
+    public int size() {
+        return dict.size();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return dict.iterator();
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        return dict.cursor();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        dict.forEach(action);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return dict.spliterator();
+    }
+
+    /**
+     * Returns the false positive rate the filter is expected to have in its current state,
+     * estimated from the share of set bits. Removed keys that are still in the filter raise it.
+     * @return the expected false positive rate, between 0 and 1.
+     */
+    public double expectedFalsePositiveRate() {
+        return filter.estimatedFalsePositiveRate();
+    }
+
+    /**
+     * Returns the share of searches for missing keys that the filter let through.
+     * Searches for removed keys that are still in the filter count as false positives as well.
+     * @return the observed false positive rate, 0 if no missing key has been searched yet.
+     */
+    public double observedFalsePositiveRate() {
+        long misses = filtered + falsePositives;
+        return misses == 0 ? 0 : (double) falsePositives / misses;
+    }
+
+    /**
+     * Returns the number of searches answered by the filter alone.
+     * @return the number of filtered searches.
+     */
+    public long filteredCount() {
+        return filtered;
+    }
+
+    /**
+     * Returns the number of searches the filter let through for a missing key.
+     * @return the number of false positives.
+     */
+    public long falsePositiveCount() {
+        return falsePositives;
+    }
+
+    /**
+     * Returns how often the filter has been built, including the first time.
+     * @return the number of rebuilds.
+     */
+    public long rebuildCount() {
+        return rebuilds;
+    }
+
+    /**
+     * Returns the memory of the filter bits.
+     * @return the size of the filter in bytes.
+     */
+    public long memoryBytes() {
+        return filter.memoryBytes();
+    }
+}
@@ -0,0 +1,361 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded cache in front of any de.htwg.alda.dictionary.Dictionary, for a slow dictionary
+ * whose lookups are skewed towards a small set of keys.
+ * <p>
+ * The cache keeps at most maximumSize entries and decides which ones with the W-TinyLFU policy:
+ * <ul>
+ *     <li>New entries go into a small LRU window (1% of the cache), so a burst of new keys
+ *     does not push out the keys that are used all the time.</li>
+ *     <li>The rest of the cache is a segmented LRU: entries leaving the window go to the probation segment,
+ *     and an entry that is hit again in probation is promoted to the protected segment (80% of the main part).</li>
+ *     <li>When the main part is full, the entry leaving the window is only admitted if it has been used more often
+ *     than the LRU entry of the probation segment, which is evicted in that case.
+ *     Otherwise the entry from the window is dropped.</li>
+ * </ul>
+ * How often a key has been used is estimated by a count-min sketch with four 4-bit counters per key,
+ * which also counts misses and keys that are not in the cache. All counters are halved after
+ * 10 * maximumSize accesses, so old popularity fades.
+ * <p>
+ * Writes go through to the wrapped dictionary, and the key is removed from the cache, so a search never
+ * returns an old value. Only found keys are cached; searching a missing key always asks the wrapped dictionary.
+ * Size, iteration and all other operations are forwarded unchanged.
+ * <p>
+ * Like the wrapped dictionaries, a CachingDictionary is not thread-safe. Note that search changes the cache.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class CachingDictionary<K, V> implements Dictionary<K, V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Dictionary<K, V> dict;
+    private final Map<K, Node<K, V>> cache = new HashMap<>();
+    private final FrequencySketch sketch;
+
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protectedQueue = new Queue<>();
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param dict the dictionary to be cached.
+     * @param maximumSize maximal number of cached entries.
+     * @throws IllegalArgumentException if maximumSize &lt; 1.
+     */
+    public CachingDictionary(Dictionary<K, V> dict, int maximumSize) {
+        if (maximumSize < 1)
+            throw new IllegalArgumentException("maximumSize must be at least 1: " + maximumSize);
+        this.dict = dict;
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.mainMax = maximumSize - windowMax;
+        this.protectedMax = mainMax * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public V search(K key) {
+        sketch.increment(key);
+
+        Node<K, V> node = cache.get(key);
+        if (node != null) {
+            hits++;
+            onHit(node);
+            return node.value;
+        }
+
+        misses++;
+        V value = dict.search(key);
+        if (value != null)
+            admit(key, value);
+        return value;
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        V old = dict.insert(key, value);
+        invalidate(key);
+        return old;
+    }
+
+    @Override
+    public V remove(K key) {
+        V old = dict.remove(key);
+        invalidate(key);
+        return old;
+    }
+
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        // the keys are needed twice, but entries may be an Iterable that can be traversed only once
+        Collection<? extends Entry<K, V>> all = entries instanceof Collection<? extends Entry<K, V>> c ? c : copyOf(entries);
+        dict.insertAll(all);
+        for (Entry<K, V> e : all)
+            invalidate(e.getKey());
+    }
+
+    private static <K, V> List<Entry<K, V>> copyOf(Iterable<? extends Entry<K, V>> entries) {
+        List<Entry<K, V>> list = new ArrayList<>();
+        for (Entry<K, V> e : entries)
+            list.add(e);
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return dict.size();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return dict.iterator();
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        return dict.cursor();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        dict.forEach(action);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return dict.spliterator();
+    }
+
+    /**
+     * Returns the number of searches answered from the cache.
+     * @return the number of cache hits.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of searches that had to ask the wrapped dictionary.
+     * @return the number of cache misses.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries that were dropped from the cache to keep it within maximumSize,
+     * including new entries that were not admitted. Invalidations by insert and remove are not counted.
+     * @return the number of evictions.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns hits / (hits + misses), or 0 if nothing has been searched yet.
+     * @return the hit rate.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * @return the number of cached entries.
+     */
+    public int cachedCount() {
+        return cache.size();
+    }
+
+    private void onHit(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROBATION -> {
+                // second hit in the main part, the entry is worth protecting
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedMax) {
+                    Node<K, V> demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            default -> protectedQueue.moveToBack(node);
+        }
+    }
+
+    private void admit(K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        cache.put(key, node);
+        window.addLast(node);
+
+        while (window.size > windowMax) {
+            // the LRU entry of the window applies for the main part
+            Node<K, V> candidate = window.first();
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+
+            if (probation.size + protectedQueue.size > mainMax) {
+                Node<K, V> victim = probation.first();
+                if (victim != candidate && sketch.frequency(candidate.key) <= sketch.frequency(victim.key))
+                    victim = candidate;
+                probation.remove(victim);
+                cache.remove(victim.key);
+                evictions++;
+            }
+        }
+    }
+
+    private void invalidate(K key) {
+        Node<K, V> node = cache.remove(key);
+        if (node == null) return;
+        switch (node.queue) {
+            case WINDOW -> window.remove(node);
+            case PROBATION -> probation.remove(node);
+            default -> protectedQueue.remove(node);
+        }
+    }
+
+    private static class Node<K, V> {
+        final K key;
+        final V value;
+        int queue = WINDOW;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Doubly linked LRU list with a sentinel: the first node is the least recently used one.
+     */
+    private static class Queue<K, V> {
+        private final Node<K, V> head = new Node<>(null, null);
+        int size = 0;
+
+        Queue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node<K, V> first() {
+            return head.next;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * Count-min sketch with 4-bit counters, 16 of them packed into a long.
+     * Every key has one counter in each of four longs; its frequency is the smallest of them.
+     * The four counters of a key lie in different quarters of their long, chosen by the hash.
+     */
+    private static class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int maximumSize) {
+            int n = Integer.highestOneBit(Math.max(1, maximumSize - 1)) << 1;
+            table = new long[n];
+            tableMask = n - 1;
+            sampleSize = 10 * Math.max(1, maximumSize);
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2;
+            int freq = 15;
+            for (int i = 0; i < 4; i++) {
+                int offset = (start + i) << 2;
+                freq = Math.min(freq, (int) ((table[indexOf(h, i)] >>> offset) & 0xfL));
+            }
+            return freq;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(h, i);
+                int offset = (start + i) << 2;
+                // the counter saturates at 15
+                if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize)
+                reset();
+        }
+
+        /**
+         * Halves all counters (aging).
+         */
+        private void reset() {
+            for (int i = 0; i < table.length; i++)
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            additions /= 2;
+        }
+
+        private int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return (int) hash & tableMask;
+        }
+
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
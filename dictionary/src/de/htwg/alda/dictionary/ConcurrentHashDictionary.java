@@ -0,0 +1,324 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe implementation of the de.htwg.alda.dictionary.Dictionary interface as hash table with chaining.
+ * <p>
+ * The buckets are divided into segments, each with its own lock and its own bucket array.
+ * Writers lock only the segment of their key, so writers on different segments do not block each other.
+ * Readers take no lock at all: chain nodes are immutable apart from their value,
+ * and a remove or resize builds new chain prefixes or a new bucket array before publishing it.
+ * A reader therefore always sees a consistent chain, either before or after a change.
+ * <p>
+ * Every segment resizes on its own when it gets too full, while the other segments keep
+ * accepting writes and may resize at the same time.
+ * <p>
+ * The iterator is weakly consistent: it never throws ConcurrentModificationException,
+ * returns every entry that existed when it was created and was not removed since,
+ * and may or may not return entries that were inserted afterwards.
+ * Null keys and null values are not allowed.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class ConcurrentHashDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+    private static final int DEF_CAPACITY = 16;
+    private static final int DEF_CONCURRENCY = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 2;
+    private static final int LOAD_FACTOR = 1;
+
+    private final Segment<K, V>[] segments;
+    // segments are selected by the upper bits of the hash, buckets by the lower bits
+    private final int segmentShift;
+
+    public ConcurrentHashDictionary() {
+        this(DEF_CAPACITY, DEF_CONCURRENCY);
+    }
+
+    public ConcurrentHashDictionary(int capacity) {
+        this(capacity, DEF_CONCURRENCY);
+    }
+
+    /**
+     * @param capacity initial number of buckets over all segments.
+     * @param concurrencyLevel expected number of concurrent writers, rounded up to a power of two segments.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentHashDictionary(int capacity, int concurrencyLevel) {
+        int nSegments = tableSizeFor(Math.max(concurrencyLevel, 1));
+        int segmentCapacity = tableSizeFor(Math.max(capacity / nSegments, MIN_SEGMENT_CAPACITY));
+
+        this.segments = new Segment[nSegments];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(nSegments);
+        for (int i = 0; i < nSegments; i++)
+            segments[i] = new Segment<>(segmentCapacity);
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        return segmentFor(h).insert(h, key, value);
+    }
+
+    @Override
+    public V search(K key) {
+        int h = hash(key);
+        AtomicReferenceArray<Node<K, V>> table = segmentFor(h).table;
+
+        for (Node<K, V> e = table.get(h & (table.length() - 1)); e != null; e = e.next) {
+            if (e.hash == h && e.key.equals(key))
+                return e.value;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V remove(K key) {
+        int h = hash(key);
+        return segmentFor(h).remove(h, key);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments)
+            size += segment.count;
+        return size;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private int segmentIndex = 0;
+            private AtomicReferenceArray<Node<K, V>> table = null;
+            private int bucket = 0;
+            private Node<K, V> next = null;
+
+            {
+                advance();
+            }
+
+            private void advance() {
+                if (next != null)
+                    next = next.next;
+
+                while (next == null) {
+                    if (table != null && bucket < table.length()) {
+                        next = table.get(bucket++);
+                    } else if (segmentIndex < segments.length) {
+                        // take the current bucket array of the next segment
+                        table = segments[segmentIndex++].table;
+                        bucket = 0;
+                    } else {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                var entry = new Entry<>(next.key, next.value);
+                advance();
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        // weakly consistent like the iterator, the value is read once per node
+        return new DictionaryCursor<>() {
+            private int segmentIndex = 0;
+            private AtomicReferenceArray<Node<K, V>> table = null;
+            private int bucket = 0;
+            private Node<K, V> node = null;
+            private V value;
+
+            @Override
+            public boolean advance() {
+                if (node != null)
+                    node = node.next;
+
+                while (node == null) {
+                    if (table != null && bucket < table.length()) {
+                        node = table.get(bucket++);
+                    } else if (segmentIndex < segments.length) {
+                        table = segments[segmentIndex++].table;
+                        bucket = 0;
+                    } else {
+                        value = null;
+                        return false;
+                    }
+                }
+                value = node.value;
+                return true;
+            }
+
+            @Override
+            public K key() {
+                if (value == null)
+                    throw new NoSuchElementException();
+                return node.key;
+            }
+
+            @Override
+            public V value() {
+                if (value == null)
+                    throw new NoSuchElementException();
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> e = table.get(i); e != null; e = e.next)
+                    action.accept(e.key, e.value);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        // the size changes concurrently, so it is not reported
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    private Segment<K, V> segmentFor(int h) {
+        return segments[(h >>> segmentShift) & (segments.length - 1)];
+    }
+
+    private static int hash(Object key) {
+        // mix the bits of hashCode, since both the upper and the lower bits are used
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+
+        Segment(int capacity) {
+            this.table = new AtomicReferenceArray<>(capacity);
+            this.count = 0;
+        }
+
+        V insert(int h, K key, V value) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = h & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+
+                // check if key is already present
+                for (Node<K, V> e = first; e != null; e = e.next) {
+                    if (e.hash == h && e.key.equals(key)) {
+                        V old = e.value;
+                        e.value = value;
+                        return old;
+                    }
+                }
+
+                // increase size when too much load
+                if (count >= tab.length() * LOAD_FACTOR) {
+                    tab = rehash(tab);
+                    index = h & (tab.length() - 1);
+                    first = tab.get(index);
+                }
+
+                tab.set(index, new Node<>(h, key, value, first));
+                count++;
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V remove(int h, Object key) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = h & (tab.length() - 1);
+                Node<K, V> first = tab.get(index);
+
+                Node<K, V> e = first;
+                while (e != null && (e.hash != h || !e.key.equals(key)))
+                    e = e.next;
+                if (e == null)
+                    return null;
+
+                // nodes behind e stay, the ones in front of e are copied onto them
+                Node<K, V> newFirst = e.next;
+                for (Node<K, V> p = first; p != e; p = p.next)
+                    newFirst = new Node<>(p.hash, p.key, p.value, newFirst);
+
+                tab.set(index, newFirst);
+                count--;
+                return e.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Copies all nodes into a bucket array of double size and publishes it.
+         * Readers still working on the old array keep seeing all of its entries.
+         */
+        private AtomicReferenceArray<Node<K, V>> rehash(AtomicReferenceArray<Node<K, V>> oldTab) {
+            var newTab = new AtomicReferenceArray<Node<K, V>>(oldTab.length() * 2);
+            int mask = newTab.length() - 1;
+
+            for (int i = 0; i < oldTab.length(); i++) {
+                for (Node<K, V> e = oldTab.get(i); e != null; e = e.next) {
+                    int index = e.hash & mask;
+                    newTab.set(index, new Node<>(e.hash, e.key, e.value, newTab.get(index)));
+                }
+            }
+
+            table = newTab;
+            return newTab;
+        }
+    }
+}
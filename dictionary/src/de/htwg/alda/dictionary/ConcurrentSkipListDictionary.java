@@ -0,0 +1,339 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe implementation of the de.htwg.alda.dictionary.Dictionary interface as lock-free skip list.
+ * <p>
+ * The entries are ordered using the natural ordering of their keys.
+ * All changes are done by compare-and-set, no thread ever waits for a lock:
+ * <ul>
+ *     <li>Inserting links a new node into the bottom level first; from then on it is contained.
+ *     Afterwards the upper levels are linked one by one.</li>
+ *     <li>Removing sets the value of the node to null (logical removal), then marks its next references,
+ *     so no node can be linked behind it anymore, and finally unlinks it (physical removal).
+ *     Every thread that walks over a marked node helps unlinking it.</li>
+ *     <li>Searching never changes anything and never restarts, it just skips marked nodes.</li>
+ * </ul>
+ * The iterator returns the entries in ascending key order and is weakly consistent:
+ * it never throws ConcurrentModificationException and reflects some of the changes made after its creation.
+ * Null keys and null values are not allowed.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class ConcurrentSkipListDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+    private static final int MAX_LEVEL = 32;
+
+    // head and tail are sentinels without key, every other node lies between them on every level
+    private final Node<K, V> head = new Node<>(null, null, MAX_LEVEL - 1);
+    private final Node<K, V> tail = new Node<>(null, null, MAX_LEVEL - 1);
+    // highest level any node has been linked on, searches start here
+    private final AtomicInteger level = new AtomicInteger(0);
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentSkipListDictionary() {
+        for (int i = 0; i < MAX_LEVEL; i++)
+            head.next.set(i, tail);
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+
+        int topLevel = randomLevel();
+        // searches must see the new levels before the node is linked into them
+        level.accumulateAndGet(topLevel, Math::max);
+
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] preds = new Node[MAX_LEVEL];
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] succs = new Node[MAX_LEVEL];
+
+        while (true) {
+            if (find(key, preds, succs)) {
+                // key is already present, replace the value unless the node is being removed
+                Node<K, V> node = succs[0];
+                V old = node.value.get();
+                if (old != null && node.value.compareAndSet(old, value))
+                    return old;
+                if (old == null)
+                    mark(node);
+                continue;
+            }
+
+            Node<K, V> node = new Node<>(key, value, topLevel);
+            for (int i = 0; i <= topLevel; i++)
+                node.next.set(i, succs[i]);
+
+            // linking the bottom level makes the node part of the dictionary
+            if (!preds[0].next.compareAndSet(0, succs[0], node))
+                continue;
+            size.increment();
+
+            linkUpperLevels(node, preds, succs);
+            return null;
+        }
+    }
+
+    private void linkUpperLevels(Node<K, V> node, Node<K, V>[] preds, Node<K, V>[] succs) {
+        for (int i = 1; i <= node.topLevel; i++) {
+            while (true) {
+                // point the node at its successor on this level, unless it is being removed
+                Node<K, V> succ = succs[i];
+                Object current = node.next.get(i);
+                if (current instanceof Marked || (current != succ && !node.next.compareAndSet(i, current, succ)))
+                    return;
+
+                if (preds[i].next.compareAndSet(i, succ, node))
+                    break;
+
+                // the neighbourhood changed, look again
+                find(node.key, preds, succs);
+                if (succs[0] != node)
+                    return;
+            }
+        }
+    }
+
+    @Override
+    public V search(K key) {
+        Node<K, V> pred = head;
+        Node<K, V> curr = null;
+
+        for (int i = level.get(); i >= 0; i--) {
+            curr = node(pred.next.get(i));
+            while (true) {
+                Object succ = curr.next.get(i);
+                // skip removed nodes without unlinking them
+                while (succ instanceof Marked<?, ?> m) {
+                    curr = node(m);
+                    succ = curr.next.get(i);
+                }
+                if (less(curr, key)) {
+                    pred = curr;
+                    curr = node(succ);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        return isKey(curr, key) ? curr.value.get() : null;
+    }
+
+    @Override
+    public V remove(K key) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] preds = new Node[MAX_LEVEL];
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] succs = new Node[MAX_LEVEL];
+
+        while (true) {
+            if (!find(key, preds, succs))
+                return null;
+
+            // whoever sets the value to null removes the node
+            Node<K, V> node = succs[0];
+            V old = node.value.get();
+            if (old == null)
+                return null;
+            if (!node.value.compareAndSet(old, null))
+                continue;
+
+            size.decrement();
+            mark(node);
+            // unlinks the marked node on all levels
+            find(key, preds, succs);
+            return old;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.intValue();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private Node<K, V> node = head;
+            private V value;
+
+            {
+                advance();
+            }
+
+            private void advance() {
+                // go to the next node that is not removed and remember its value
+                value = null;
+                while (value == null) {
+                    node = node(node.next.get(0));
+                    if (node == tail)
+                        return;
+                    value = node.value.get();
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return node != tail;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                var entry = new Entry<>(node.key, value);
+                advance();
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        // weakly consistent like the iterator, the value is read once per node
+        return new DictionaryCursor<>() {
+            private Node<K, V> node = head;
+            private V value;
+
+            @Override
+            public boolean advance() {
+                value = null;
+                while (value == null && node != tail) {
+                    node = node(node.next.get(0));
+                    if (node != tail)
+                        value = node.value.get();
+                }
+                return value != null;
+            }
+
+            @Override
+            public K key() {
+                if (value == null)
+                    throw new NoSuchElementException();
+                return node.key;
+            }
+
+            @Override
+            public V value() {
+                if (value == null)
+                    throw new NoSuchElementException();
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        // the size changes concurrently, so it is not reported
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.CONCURRENT | Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Fills preds and succs with the nodes before and at or after key on every level
+     * and unlinks all marked nodes on the way.
+     * Returns true if key is contained.
+     */
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        retry:
+        while (true) {
+            Node<K, V> pred = head;
+            Node<K, V> curr = null;
+
+            for (int i = level.get(); i >= 0; i--) {
+                curr = node(pred.next.get(i));
+                while (true) {
+                    Object succ = curr.next.get(i);
+                    while (succ instanceof Marked<?, ?>) {
+                        // curr is removed, unlink it; if pred changed meanwhile, start again
+                        if (!pred.next.compareAndSet(i, curr, node(succ)))
+                            continue retry;
+                        curr = node(succ);
+                        succ = curr.next.get(i);
+                    }
+                    if (less(curr, key)) {
+                        pred = curr;
+                        curr = node(succ);
+                    } else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+
+            return isKey(curr, key);
+        }
+    }
+
+    /**
+     * Marks all next references of node from top to bottom.
+     */
+    private void mark(Node<K, V> node) {
+        for (int i = node.topLevel; i >= 0; i--) {
+            Object succ = node.next.get(i);
+            while (!(succ instanceof Marked<?, ?>)) {
+                @SuppressWarnings("unchecked")
+                var marked = new Marked<>((Node<K, V>) succ);
+                if (node.next.compareAndSet(i, succ, marked))
+                    break;
+                succ = node.next.get(i);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V> node(Object ref) {
+        return ref instanceof Marked<?, ?> m ? (Node<K, V>) m.node : (Node<K, V>) ref;
+    }
+
+    private boolean less(Node<K, V> node, K key) {
+        return node != tail && node.key.compareTo(key) < 0;
+    }
+
+    private boolean isKey(Node<K, V> node, K key) {
+        return node != tail && node.key.compareTo(key) == 0;
+    }
+
+    private static int randomLevel() {
+        // level l is taken with probability 2^-(l+1)
+        int l = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt());
+        return Math.min(l, MAX_LEVEL - 1);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        // null when removed
+        final AtomicReference<V> value;
+        // holds either the successor node or, once this node is removed, a Marked wrapping it
+        final AtomicReferenceArray<Object> next;
+        final int topLevel;
+
+        Node(K key, V value, int topLevel) {
+            this.key = key;
+            this.value = new AtomicReference<>(value);
+            this.topLevel = topLevel;
+            this.next = new AtomicReferenceArray<>(topLevel + 1);
+        }
+    }
+
+    /**
+     * Marked next reference of a removed node, nothing can be linked behind it anymore.
+     */
+    private record Marked<K, V>(Node<K, V> node) {
+    }
+}
@@ -0,0 +1,569 @@
+package de.htwg.alda.dictionary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable implementation of the de.htwg.alda.dictionary.Dictionary interface for strings
+ * as minimal acyclic automaton (DAWG) over the characters of the keys.
+ * <p>
+ * A DawgDictionary is compiled once from another dictionary with {@link #compile(Dictionary)}.
+ * Keys with a common beginning share the states for it, and keys with a common ending share the states
+ * for the ending as well, so a word list needs far fewer states than it has characters.
+ * Every state knows how many keys lie below it, so the walk for a key also counts the keys before it.
+ * This number (the rank of the key) selects the value:
+ * <ul>
+ *     <li>every distinct value is stored once as UTF-8 bytes in a value table,</li>
+ *     <li>the index into the value table is stored for every rank with as few bits as the table size needs.</li>
+ * </ul>
+ * The automaton is kept in a few flat arrays, which {@link #toByteArray()} writes as one block
+ * and {@link #fromByteArray(byte[])} reads back without building anything.
+ * <p>
+ * The iterator returns the entries in ascending key order. Insert and remove throw UnsupportedOperationException.
+ */
+public class DawgDictionary implements Dictionary<String, String> {
+    private static final int MAGIC = 0x44415747; // "DAWG"
+    private static final int VERSION = 1;
+
+    // arcs of state s are firstArc[s] .. firstArc[s + 1] - 1, sorted by label; state 0 is the start
+    private final int[] firstArc;
+    // one bit per state, set if a key ends in the state
+    private final long[] finals;
+    private final char[] labels;
+    private final int[] targets;
+    // number of keys that come before the keys reached over the arc, among all keys of its state
+    private final int[] skips;
+
+    // UTF-8 bytes of the distinct values, value i is valueData[valueStart[i] .. valueStart[i + 1] - 1]
+    private final byte[] valueData;
+    private final int[] valueStart;
+    private final int bitsPerOrdinal;
+    // value table index for every rank, bitsPerOrdinal bits each
+    private final long[] ordinals;
+    private final int size;
+
+    private DawgDictionary(int[] firstArc, long[] finals, char[] labels, int[] targets, int[] skips,
+                           byte[] valueData, int[] valueStart, int bitsPerOrdinal, long[] ordinals, int size) {
+        this.firstArc = firstArc;
+        this.finals = finals;
+        this.labels = labels;
+        this.targets = targets;
+        this.skips = skips;
+        this.valueData = valueData;
+        this.valueStart = valueStart;
+        this.bitsPerOrdinal = bitsPerOrdinal;
+        this.ordinals = ordinals;
+        this.size = size;
+    }
+
+    /**
+     * Compiles all entries of dict into a DawgDictionary.
+     * @param dict dictionary to compile; it is not changed.
+     * @return a new DawgDictionary with the same entries.
+     */
+    public static DawgDictionary compile(Dictionary<String, String> dict) {
+        List<Entry<String, String>> entries = new ArrayList<>(dict.size());
+        for (Entry<String, String> e : dict)
+            entries.add(e);
+        entries.sort(Comparator.comparing(Entry::getKey));
+
+        // build the automaton, then number its states
+        Builder builder = new Builder();
+        for (Entry<String, String> e : entries)
+            builder.add(e.getKey());
+        State start = builder.finish();
+
+        List<State> states = new ArrayList<>();
+        number(start, states);
+
+        int arcCount = 0;
+        for (State s : states)
+            arcCount += s.arcs;
+
+        int[] firstArc = new int[states.size() + 1];
+        long[] finals = new long[(states.size() + 63) >>> 6];
+        char[] labels = new char[arcCount];
+        int[] targets = new int[arcCount];
+        int[] skips = new int[arcCount];
+
+        int a = 0;
+        for (int i = 0; i < states.size(); i++) {
+            State s = states.get(i);
+            firstArc[i] = a;
+            int skip = 0;
+            if (s.isFinal) {
+                finals[i >>> 6] |= 1L << i;
+                skip = 1;
+            }
+            for (int j = 0; j < s.arcs; j++, a++) {
+                labels[a] = s.labels[j];
+                targets[a] = s.children[j].id;
+                skips[a] = skip;
+                skip += s.children[j].words;
+            }
+        }
+        firstArc[states.size()] = a;
+
+        // the same value is stored only once
+        Map<String, Integer> valueIndex = new HashMap<>();
+        ByteArrayOutputStream valueData = new ByteArrayOutputStream();
+        List<Integer> valueStart = new ArrayList<>();
+        int[] ordinal = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            String value = entries.get(i).getValue();
+            Integer index = valueIndex.get(value);
+            if (index == null) {
+                index = valueStart.size();
+                valueIndex.put(value, index);
+                valueStart.add(valueData.size());
+                valueData.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+            ordinal[i] = index;
+        }
+        valueStart.add(valueData.size());
+
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(valueStart.size() - 2));
+        long[] ordinals = new long[(int) (((long) entries.size() * bits + 63) >>> 6)];
+        for (int i = 0; i < ordinal.length; i++) {
+            long pos = (long) i * bits;
+            int word = (int) (pos >>> 6);
+            int shift = (int) (pos & 63);
+            ordinals[word] |= (long) ordinal[i] << shift;
+            if (shift + bits > 64)
+                ordinals[word + 1] |= (long) ordinal[i] >>> (64 - shift);
+        }
+
+        return new DawgDictionary(firstArc, finals, labels, targets, skips,
+                valueData.toByteArray(), valueStart.stream().mapToInt(Integer::intValue).toArray(),
+                bits, ordinals, entries.size());
+    }
+
+    /**
+     * Assigns the numbers in depth-first order, so the start state gets 0,
+     * and counts the keys below every state.
+     */
+    private static void number(State s, List<State> states) {
+        s.id = states.size();
+        states.add(s);
+        s.words = s.isFinal ? 1 : 0;
+        for (int j = 0; j < s.arcs; j++) {
+            State child = s.children[j];
+            if (child.id < 0)
+                number(child, states);
+            s.words += child.words;
+        }
+    }
+
+    @Override
+    public String insert(String key, String value) {
+        throw new UnsupportedOperationException("DawgDictionary is read-only");
+    }
+
+    @Override
+    public String search(String key) {
+        int state = 0;
+        int rank = 0;
+
+        for (int i = 0; i < key.length(); i++) {
+            int a = Arrays.binarySearch(labels, firstArc[state], firstArc[state + 1], key.charAt(i));
+            if (a < 0)
+                return null;
+            rank += skips[a];
+            state = targets[a];
+        }
+
+        return isFinal(state) ? value(ordinal(rank)) : null;
+    }
+
+    @Override
+    public String remove(String key) {
+        throw new UnsupportedOperationException("DawgDictionary is read-only");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<>() {
+            private final Walk walk = new Walk();
+
+            @Override
+            public boolean hasNext() {
+                return walk.depth >= 0;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                var entry = new Entry<>(walk.key.toString(), value(ordinal(walk.rank)));
+                walk.advance();
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<String, String> cursor() {
+        return new DictionaryCursor<>() {
+            private final Walk walk = new Walk();
+            private boolean started = false;
+            // built from the walk only when asked for
+            private String key = null;
+            private String value = null;
+
+            @Override
+            public boolean advance() {
+                if (started && walk.depth >= 0)
+                    walk.advance();
+                started = true;
+                key = null;
+                value = null;
+                return walk.depth >= 0;
+            }
+
+            @Override
+            public String key() {
+                check();
+                if (key == null)
+                    key = walk.key.toString();
+                return key;
+            }
+
+            @Override
+            public String value() {
+                check();
+                if (value == null)
+                    value = DawgDictionary.this.value(ordinal(walk.rank));
+                return value;
+            }
+
+            private void check() {
+                if (!started || walk.depth < 0)
+                    throw new NoSuchElementException();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        for (Walk walk = new Walk(); walk.depth >= 0; walk.advance())
+            action.accept(walk.key.toString(), value(ordinal(walk.rank)));
+    }
+
+    /**
+     * Depth-first walk over the arcs, which stops at every state in which a key ends.
+     * key holds the labels on the path and rank the number of keys before it; depth is -1 at the end.
+     */
+    private final class Walk {
+        // path from the start state: the current state and its next arc on every level
+        private int[] stateStack = new int[16];
+        private int[] arcStack = new int[16];
+        final StringBuilder key = new StringBuilder();
+        int depth = 0;
+        int rank = -1;
+
+        Walk() {
+            arcStack[0] = firstArc[0];
+            if (isFinal(0))
+                rank = 0;
+            else
+                advance();
+        }
+
+        /**
+         * Walks depth-first to the next state in which a key ends.
+         */
+        void advance() {
+            rank++;
+            while (depth >= 0) {
+                int s = stateStack[depth];
+                int a = arcStack[depth];
+                if (a == firstArc[s + 1]) {
+                    // all arcs done, go back up
+                    depth--;
+                    if (depth >= 0)
+                        key.setLength(depth);
+                    continue;
+                }
+
+                arcStack[depth] = a + 1;
+                push(targets[a]);
+                key.append(labels[a]);
+                if (isFinal(targets[a]))
+                    return;
+            }
+        }
+
+        private void push(int state) {
+            if (++depth == stateStack.length) {
+                stateStack = Arrays.copyOf(stateStack, 2 * depth);
+                arcStack = Arrays.copyOf(arcStack, 2 * depth);
+            }
+            stateStack[depth] = state;
+            arcStack[depth] = firstArc[state];
+        }
+    }
+
+    /**
+     * Returns the number of states of the automaton.
+     */
+    public int stateCount() {
+        return firstArc.length - 1;
+    }
+
+    /**
+     * Returns the number of arcs of the automaton.
+     */
+    public int arcCount() {
+        return labels.length;
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int valueCount() {
+        return valueStart.length - 1;
+    }
+
+    /**
+     * Writes the dictionary into a byte array, which fromByteArray reads back.
+     * @return the dictionary as bytes.
+     */
+    public byte[] toByteArray() {
+        long length = 4L * 9 + 4L * firstArc.length + 8L * finals.length
+                + 10L * labels.length + 8L * ordinals.length + 4L * valueStart.length + valueData.length;
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalStateException("dictionary too big for a byte array");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(firstArc.length - 1)
+                .putInt(labels.length).putInt(valueStart.length - 1).putInt(valueData.length)
+                .putInt(bitsPerOrdinal).putInt(ordinals.length);
+
+        buffer.asIntBuffer().put(firstArc);
+        buffer.position(buffer.position() + 4 * firstArc.length);
+        buffer.asLongBuffer().put(finals);
+        buffer.position(buffer.position() + 8 * finals.length);
+        buffer.asLongBuffer().put(ordinals);
+        buffer.position(buffer.position() + 8 * ordinals.length);
+        buffer.asIntBuffer().put(targets);
+        buffer.position(buffer.position() + 4 * targets.length);
+        buffer.asIntBuffer().put(skips);
+        buffer.position(buffer.position() + 4 * skips.length);
+        buffer.asIntBuffer().put(valueStart);
+        buffer.position(buffer.position() + 4 * valueStart.length);
+        buffer.asCharBuffer().put(labels);
+        buffer.position(buffer.position() + 2 * labels.length);
+        buffer.put(valueData);
+        return buffer.array();
+    }
+
+    /**
+     * Reads a dictionary written by toByteArray.
+     * @param bytes the dictionary as bytes.
+     * @return the dictionary.
+     * @throws IllegalArgumentException if bytes is no dictionary.
+     */
+    public static DawgDictionary fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 36 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IllegalArgumentException("not a DawgDictionary");
+
+        int size = buffer.getInt();
+        int stateCount = buffer.getInt();
+        int arcCount = buffer.getInt();
+        int valueCount = buffer.getInt();
+        int valueLength = buffer.getInt();
+        int bits = buffer.getInt();
+        int ordinalWords = buffer.getInt();
+        if (size < 0 || stateCount < 0 || arcCount < 0 || valueCount < 0 || valueLength < 0
+                || bits < 1 || bits > 32 || ordinalWords != ((long) size * bits + 63) >>> 6)
+            throw new IllegalArgumentException("corrupt DawgDictionary: invalid counts in the header");
+        // toByteArray writes exactly this many bytes; long, so that large counts cannot overflow
+        long length = 4L * 9 + 4L * (stateCount + 1L) + 8L * ((stateCount + 63L) >>> 6)
+                + 10L * arcCount + 8L * ordinalWords + 4L * (valueCount + 1L) + valueLength;
+        if (length != bytes.length)
+            throw new IllegalArgumentException("corrupt DawgDictionary: " + bytes.length
+                    + " bytes, but the header needs " + length);
+
+        int[] firstArc = new int[stateCount + 1];
+        buffer.asIntBuffer().get(firstArc);
+        buffer.position(buffer.position() + 4 * firstArc.length);
+        long[] finals = new long[(stateCount + 63) >>> 6];
+        buffer.asLongBuffer().get(finals);
+        buffer.position(buffer.position() + 8 * finals.length);
+        long[] ordinals = new long[ordinalWords];
+        buffer.asLongBuffer().get(ordinals);
+        buffer.position(buffer.position() + 8 * ordinals.length);
+        int[] targets = new int[arcCount];
+        buffer.asIntBuffer().get(targets);
+        buffer.position(buffer.position() + 4 * arcCount);
+        int[] skips = new int[arcCount];
+        buffer.asIntBuffer().get(skips);
+        buffer.position(buffer.position() + 4 * arcCount);
+        int[] valueStart = new int[valueCount + 1];
+        buffer.asIntBuffer().get(valueStart);
+        buffer.position(buffer.position() + 4 * valueStart.length);
+        char[] labels = new char[arcCount];
+        buffer.asCharBuffer().get(labels);
+        buffer.position(buffer.position() + 2 * arcCount);
+        byte[] valueData = new byte[valueLength];
+        buffer.get(valueData);
+
+        return new DawgDictionary(firstArc, finals, labels, targets, skips, valueData, valueStart,
+                bits, ordinals, size);
+    }
+
+    private boolean isFinal(int state) {
+        return (finals[state >>> 6] & (1L << state)) != 0;
+    }
+
+    private String value(int ordinal) {
+        return new String(valueData, valueStart[ordinal], valueStart[ordinal + 1] - valueStart[ordinal],
+                StandardCharsets.UTF_8);
+    }
+
+    private int ordinal(int rank) {
+        long pos = (long) rank * bitsPerOrdinal;
+        int word = (int) (pos >>> 6);
+        int shift = (int) (pos & 63);
+        long bits = ordinals[word] >>> shift;
+        if (shift + bitsPerOrdinal > 64)
+            bits |= ordinals[word + 1] << (64 - shift);
+        return (int) (bits & ((1L << bitsPerOrdinal) - 1));
+    }
+
+    /**
+     * State of the automaton while it is built.
+     */
+    private static final class State {
+        boolean isFinal;
+        char[] labels = new char[2];
+        State[] children = new State[2];
+        int arcs = 0;
+        // set when the states are numbered
+        int id = -1;
+        int words;
+        // set when the state is registered
+        int hash;
+
+        void addArc(char label, State child) {
+            if (arcs == labels.length) {
+                labels = Arrays.copyOf(labels, 2 * arcs);
+                children = Arrays.copyOf(children, 2 * arcs);
+            }
+            labels[arcs] = label;
+            children[arcs] = child;
+            arcs++;
+        }
+
+        State lastChild() {
+            return arcs == 0 ? null : children[arcs - 1];
+        }
+
+        /**
+         * Two registered states are equivalent if they agree in isFinal and in all arcs,
+         * the children being registered states already.
+         */
+        boolean equivalent(State other) {
+            if (isFinal != other.isFinal || arcs != other.arcs)
+                return false;
+            for (int j = 0; j < arcs; j++) {
+                if (labels[j] != other.labels[j] || children[j] != other.children[j])
+                    return false;
+            }
+            return true;
+        }
+
+        int computeHash() {
+            int h = isFinal ? 1 : 0;
+            for (int j = 0; j < arcs; j++)
+                h = 31 * (31 * h + labels[j]) + System.identityHashCode(children[j]);
+            return h;
+        }
+    }
+
+    /**
+     * Builds the minimal automaton from keys in ascending order (Daciuk et al., incremental construction).
+     * <p>
+     * Only the path of the last added key can still change. When the next key leaves this path,
+     * the part of the path behind the common prefix is final and gets minimized bottom-up:
+     * every state on it is replaced by an equivalent state from the register, or registered itself.
+     */
+    private static final class Builder {
+        private final State start = new State();
+        private final Map<Key, State> register = new HashMap<>();
+        private String previous = null;
+
+        void add(String key) {
+            if (previous != null && previous.compareTo(key) >= 0)
+                throw new IllegalArgumentException("keys not in ascending order: " + key);
+
+            // follow the common prefix, it only uses the last arcs of the states
+            State s = start;
+            int i = 0;
+            while (i < key.length() && s.arcs > 0 && s.labels[s.arcs - 1] == key.charAt(i)) {
+                s = s.lastChild();
+                i++;
+            }
+
+            if (s.arcs > 0)
+                replaceOrRegister(s);
+
+            for (; i < key.length(); i++) {
+                State child = new State();
+                s.addArc(key.charAt(i), child);
+                s = child;
+            }
+            s.isFinal = true;
+            previous = key;
+        }
+
+        State finish() {
+            if (start.arcs > 0)
+                replaceOrRegister(start);
+            return start;
+        }
+
+        private void replaceOrRegister(State s) {
+            State child = s.lastChild();
+            if (child.arcs > 0)
+                replaceOrRegister(child);
+
+            child.hash = child.computeHash();
+            Key k = new Key(child);
+            State q = register.get(k);
+            if (q != null)
+                s.children[s.arcs - 1] = q;
+            else
+                register.put(k, child);
+        }
+    }
+
+    private record Key(State state) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && state.equivalent(k.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return state.hash;
+        }
+    }
+}
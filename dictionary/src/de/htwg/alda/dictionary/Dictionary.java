@@ -4,6 +4,12 @@
 package de.htwg.alda.dictionary;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Collection of entries.
@@ -42,6 +48,33 @@ public interface Dictionary<K,V> extends Iterable<Dictionary.Entry<K,V>> {
 	 */
 	V remove(K key);
 
+	/**
+	 * Looks up all keys at once: out[i] is set to the value of keys[i], or null if keys[i] is not contained.
+	 * The default implementation calls search for every key; implementations override it
+	 * to share work between the keys of one batch.
+	 * @param keys the keys whose values are to be returned.
+	 * @param out array receiving the values, at least as long as keys.
+	 * @throws IllegalArgumentException if out is shorter than keys.
+	 */
+	default void searchAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		for (int i = 0; i < keys.length; i++)
+			out[i] = search(keys[i]);
+	}
+
+	/**
+	 * Inserts all entries, with the same result as inserting them one by one in iteration order:
+	 * if a key occurs more than once, the value inserted last wins.
+	 * The default implementation calls insert for every entry; implementations override it
+	 * to insert a batch faster than single entries.
+	 * @param entries entries to be inserted.
+	 */
+	default void insertAll(Iterable<? extends Entry<K, V>> entries) {
+		for (Entry<K, V> e : entries)
+			insert(e.getKey(), e.getValue());
+	}
+
 	/**
 	 * Returns the number of elements in this dictionary.
 	 * @return the number of elements in this dictionary.
@@ -56,7 +89,77 @@ public interface Dictionary<K,V> extends Iterable<Dictionary.Entry<K,V>> {
 	 */
 	@Override
 	public Iterator<Entry<K, V>> iterator();
-	
+
+	/**
+	 * Returns a cursor over the entries in this dictionary, in the same order as the iterator.
+	 * The default implementation is based on the iterator; implementations override it
+	 * to walk their own data structure without allocating per entry.
+	 * @return a cursor positioned before the first entry.
+	 */
+	default DictionaryCursor<K, V> cursor() {
+		Iterator<Entry<K, V>> it = iterator();
+		return new DictionaryCursor<>() {
+			private Entry<K, V> current;
+
+			@Override
+			public boolean advance() {
+				current = it.hasNext() ? it.next() : null;
+				return current != null;
+			}
+
+			@Override
+			public K key() {
+				if (current == null) throw new NoSuchElementException();
+				return current.getKey();
+			}
+
+			@Override
+			public V value() {
+				if (current == null) throw new NoSuchElementException();
+				return current.getValue();
+			}
+		};
+	}
+
+	/**
+	 * Performs the given action for each key and value in this dictionary,
+	 * in the same order as the iterator.
+	 * @param action the action to be performed for each entry.
+	 */
+	default void forEach(BiConsumer<? super K, ? super V> action) {
+		DictionaryCursor<K, V> c = cursor();
+		while (c.advance())
+			action.accept(c.key(), c.value());
+	}
+
+	/**
+	 * Returns a spliterator over the entries in this dictionary.
+	 * The default implementation is based on the iterator and reports SIZED;
+	 * implementations override it to split their own data structure evenly.
+	 * @return a Spliterator over the entries in this dictionary.
+	 */
+	@Override
+	default Spliterator<Entry<K, V>> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.NONNULL);
+	}
+
+	/**
+	 * Returns a sequential stream of the entries in this dictionary.
+	 * @return a Stream over the entries in this dictionary.
+	 */
+	default Stream<Entry<K, V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a possibly parallel stream of the entries in this dictionary.
+	 * How well it scales depends on how evenly the spliterator of the implementation splits.
+	 * @return a possibly parallel Stream over the entries in this dictionary.
+	 */
+	default Stream<Entry<K, V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	/**
 	 * A dictionary entry (key-value pair).
 	 * @param <K> Key (must be immutable).
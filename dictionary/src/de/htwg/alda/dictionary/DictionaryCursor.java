@@ -0,0 +1,40 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Cursor over the entries of a de.htwg.alda.dictionary.Dictionary.
+ * <p>
+ * Unlike an Iterator, a cursor does not hand out Entry objects: it is moved with advance()
+ * and the current entry is read with key() and value(). Implementations keep only a position,
+ * so a full scan allocates nothing per entry.
+ * <pre>
+ * DictionaryCursor&lt;K, V&gt; c = dict.cursor();
+ * while (c.advance())
+ *     System.out.println(c.key() + " " + c.value());
+ * </pre>
+ * Like the iterator, a cursor fails with ConcurrentModificationException in advance()
+ * if the dictionary is changed while it is in use.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public interface DictionaryCursor<K, V> {
+    /**
+     * Moves to the next entry. A new cursor is positioned before the first entry.
+     * @return true if there is a next entry, false if the cursor has passed the last entry.
+     */
+    boolean advance();
+
+    /**
+     * Returns the key of the current entry.
+     * @return the key of the current entry.
+     * @throws java.util.NoSuchElementException if advance() has not returned true before.
+     */
+    K key();
+
+    /**
+     * Returns the value of the current entry.
+     * @return the value of the current entry.
+     * @throws java.util.NoSuchElementException if advance() has not returned true before.
+     */
+    V value();
+}
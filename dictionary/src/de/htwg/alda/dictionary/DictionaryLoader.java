@@ -0,0 +1,141 @@
+package de.htwg.alda.dictionary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Loads word files like dtengl.txt into a dictionary.
+ * <p>
+ * The file consists of pairs of words (key and value) separated by whitespace, usually one pair per line.
+ * Instead of a Scanner, whose tokenizer is based on regular expressions and a char buffer,
+ * the loader reads the whole file into one byte array and scans it for ASCII whitespace directly.
+ * Keys and values are decoded from UTF-8 straight out of that array, so apart from the strings
+ * and their entries nothing is allocated per word.
+ * <p>
+ * Files of at least PARALLEL_MIN_BYTES are split into chunks at line ends, which are parsed in parallel;
+ * this assumes that no pair spans two lines. The entries are then inserted with a single insertAll
+ * in file order, so of equal keys the last one wins, as with single inserts.
+ */
+public final class DictionaryLoader {
+    // smaller files are parsed by one thread, and this is also the smallest chunk
+    private static final int PARALLEL_MIN_BYTES = 1 << 20;
+
+    private DictionaryLoader() {
+    }
+
+    /**
+     * Loads all entries of file into dict.
+     * @param file word file with pairs of key and value.
+     * @param dict dictionary the entries are inserted into.
+     * @return the number of entries and the time needed.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Result load(Path file, Dictionary<String, String> dict) throws IOException {
+        return load(file, dict, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Loads the first limit entries of file into dict.
+     * The file is parsed by one thread then, which stops at the limit.
+     * @param file word file with pairs of key and value.
+     * @param dict dictionary the entries are inserted into.
+     * @param limit maximal number of entries, Integer.MAX_VALUE for all; nothing is read if it is not positive.
+     * @return the number of entries and the time needed.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Result load(Path file, Dictionary<String, String> dict, int limit) throws IOException {
+        long start = System.nanoTime();
+        byte[] data = Files.readAllBytes(file);
+
+        List<Dictionary.Entry<String, String>> entries;
+        int chunks = (int) Math.min(4L * Runtime.getRuntime().availableProcessors(), data.length / PARALLEL_MIN_BYTES);
+        if (limit < Integer.MAX_VALUE || chunks <= 1) {
+            // a negative limit reads nothing, like a limit of 0
+            entries = parse(data, 0, data.length, Math.max(0, limit));
+        } else {
+            int[] bounds = split(data, chunks);
+            List<List<Dictionary.Entry<String, String>>> parts = IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> parse(data, bounds[i], bounds[i + 1], Integer.MAX_VALUE))
+                    .toList();
+            int total = 0;
+            for (List<Dictionary.Entry<String, String>> part : parts)
+                total += part.size();
+            entries = new ArrayList<>(total);
+            for (List<Dictionary.Entry<String, String>> part : parts)
+                entries.addAll(part);
+        }
+        long parsed = System.nanoTime();
+
+        dict.insertAll(entries);
+        return new Result(entries.size(), data.length, parsed - start, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns chunks + 1 bounds, every inner bound lies right after a line end.
+     */
+    private static int[] split(byte[] data, int chunks) {
+        int[] bounds = new int[chunks + 1];
+        for (int i = 1; i < chunks; i++) {
+            int b = Math.max(bounds[i - 1], (int) ((long) data.length * i / chunks));
+            while (b < data.length && data[b - 1] != '\n')
+                b++;
+            bounds[i] = b;
+        }
+        bounds[chunks] = data.length;
+        return bounds;
+    }
+
+    private static List<Dictionary.Entry<String, String>> parse(byte[] data, int from, int to, int limit) {
+        // about 16 bytes per line in the word files
+        List<Dictionary.Entry<String, String>> entries = new ArrayList<>(Math.min(limit, (to - from) / 16 + 1));
+        int i = from;
+        while (entries.size() < limit) {
+            while (i < to && isSpace(data[i])) i++;
+            int keyStart = i;
+            while (i < to && !isSpace(data[i])) i++;
+            int keyEnd = i;
+            while (i < to && isSpace(data[i])) i++;
+            int valueStart = i;
+            while (i < to && !isSpace(data[i])) i++;
+
+            // end of the chunk, or a key without value
+            if (valueStart == i) break;
+
+            entries.add(new Dictionary.Entry<>(
+                    new String(data, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8),
+                    new String(data, valueStart, i - valueStart, StandardCharsets.UTF_8)));
+        }
+        return entries;
+    }
+
+    private static boolean isSpace(byte b) {
+        // blank, \t, \n, vertical tab, \f and \r; bytes of multi-byte UTF-8 characters are negative
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    /**
+     * Statistics of one load.
+     * @param entries number of entries inserted.
+     * @param bytes size of the file.
+     * @param parseNanos time for reading and parsing the file.
+     * @param totalNanos time including the insertion.
+     */
+    public record Result(int entries, long bytes, long parseNanos, long totalNanos) {
+        public double millis() {
+            return totalNanos / 1.0e6;
+        }
+
+        public double megabytesPerSecond() {
+            return bytes / 1.0e6 / (totalNanos / 1.0e9);
+        }
+
+        public double entriesPerSecond() {
+            return entries / (totalNanos / 1.0e9);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package de.htwg.alda.dictionary;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Counters about the operations of one dictionary, recorded by the dictionary itself
+ * while metrics are enabled (see Instrumented).
+ * <p>
+ * The counters are plain fields written by the thread that uses the dictionary.
+ * If several threads search at the same time, e.g. under the shared read lock of a ReadMostlyDictionary,
+ * their increments can overwrite each other, so the counters are then a lower bound.
+ * They can be read directly or over JMX after {@link #register(String)}.
+ */
+public class DictionaryMetrics implements DictionaryMetricsMXBean {
+    // bucket i of a histogram counts the values 2^(i-1) .. 2^i - 1, bucket 0 the value 0
+    private static final int HISTOGRAM_BUCKETS = 33;
+
+    private long inserts;
+    private long searches;
+    private long removes;
+    private long comparisons;
+    private int maxComparisons;
+    private final long[] comparisonHistogram = new long[HISTOGRAM_BUCKETS];
+    // builds the chain length histogram from the table of a hash dictionary, null for other dictionaries
+    private final Supplier<long[]> chainLengths;
+    private long resizes;
+    private long resizeNanos;
+    private long rotations;
+    private long shifts;
+    private int treeHeight = -1;
+
+    public DictionaryMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param chainLengths called for every read of the chain length histogram,
+     *                     returns a histogram built with newHistogram and bucketOf.
+     */
+    DictionaryMetrics(Supplier<long[]> chainLengths) {
+        this.chainLengths = chainLengths;
+    }
+
+    void recordInsert() {
+        inserts++;
+    }
+
+    void recordInserts(int n) {
+        inserts += n;
+    }
+
+    void recordRemove() {
+        removes++;
+    }
+
+    /**
+     * Records a search that needed the given number of comparisons.
+     */
+    void recordSearch(int comparisons) {
+        searches++;
+        this.comparisons += comparisons;
+        maxComparisons = Math.max(maxComparisons, comparisons);
+        comparisonHistogram[bucketOf(comparisons)]++;
+    }
+
+    void recordResize(long nanos) {
+        resizes++;
+        resizeNanos += nanos;
+    }
+
+    /**
+     * Adds time to the last resize, for resizes that are done in several steps.
+     */
+    void recordResizeStep(long nanos) {
+        resizeNanos += nanos;
+    }
+
+    void recordRotation() {
+        rotations++;
+    }
+
+    void recordShifts(int n) {
+        shifts += n;
+    }
+
+    void setTreeHeight(int height) {
+        treeHeight = height;
+    }
+
+    static long[] newHistogram() {
+        return new long[HISTOGRAM_BUCKETS];
+    }
+
+    static int bucketOf(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Registers these metrics at the platform MBean server
+     * as de.htwg.alda.dictionary:type=DictionaryMetrics,name=name.
+     * @param name name of the dictionary, unique among the registered ones.
+     * @return the name the metrics are registered under.
+     * @throws JMException if the name is invalid or already registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes the metrics registered under name from the platform MBean server, if there are any.
+     * @param name name used for register.
+     * @throws JMException if the name is invalid.
+     */
+    public static void unregister(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName))
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("de.htwg.alda.dictionary:type=DictionaryMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getInserts() {
+        return inserts;
+    }
+
+    @Override
+    public long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public long getRemoves() {
+        return removes;
+    }
+
+    @Override
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public double getComparisonsPerSearch() {
+        return searches == 0 ? 0 : (double) comparisons / searches;
+    }
+
+    @Override
+    public int getMaxComparisons() {
+        return maxComparisons;
+    }
+
+    @Override
+    public long[] getComparisonHistogram() {
+        return trim(comparisonHistogram);
+    }
+
+    @Override
+    public long[] getChainLengthHistogram() {
+        return chainLengths == null ? new long[0] : trim(chainLengths.get());
+    }
+
+    @Override
+    public long getResizes() {
+        return resizes;
+    }
+
+    @Override
+    public double getResizeMillis() {
+        return resizeNanos / 1.0e6;
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations;
+    }
+
+    @Override
+    public long getShifts() {
+        return shifts;
+    }
+
+    @Override
+    public int getTreeHeight() {
+        return treeHeight;
+    }
+
+    @Override
+    public void reset() {
+        inserts = searches = removes = comparisons = 0;
+        maxComparisons = 0;
+        Arrays.fill(comparisonHistogram, 0);
+        resizes = resizeNanos = 0;
+        rotations = shifts = 0;
+    }
+
+    /**
+     * Returns a copy of histogram without the empty buckets at the end.
+     */
+    private static long[] trim(long[] histogram) {
+        int n = histogram.length;
+        while (n > 0 && histogram[n - 1] == 0)
+            n--;
+        return Arrays.copyOf(histogram, n);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "inserts %d, searches %d, removes %d%n", inserts, searches, removes));
+        sb.append(String.format(Locale.ROOT, "comparisons per search %.2f (max %d)%n", getComparisonsPerSearch(), maxComparisons));
+        appendHistogram(sb, "comparisons", getComparisonHistogram());
+        appendHistogram(sb, "chain lengths", getChainLengthHistogram());
+        sb.append(String.format(Locale.ROOT, "resizes %d (%.2fms), rotations %d, shifts %d", resizes, getResizeMillis(), rotations, shifts));
+        if (treeHeight >= 0)
+            sb.append(", tree height ").append(treeHeight);
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, long[] histogram) {
+        if (histogram.length == 0) return;
+        sb.append(name).append(':');
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) continue;
+            int from = i == 0 ? 0 : 1 << (i - 1);
+            int to = i == 0 ? 0 : (1 << i) - 1;
+            sb.append(' ').append(from == to ? String.valueOf(from) : from + "-" + to).append(": ").append(histogram[i]);
+        }
+        sb.append(System.lineSeparator());
+    }
+}
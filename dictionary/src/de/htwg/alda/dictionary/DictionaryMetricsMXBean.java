@@ -0,0 +1,49 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * JMX view of the DictionaryMetrics of one dictionary.
+ * Operations that a dictionary does not have (e.g. rotations of a hash table) stay 0.
+ */
+public interface DictionaryMetricsMXBean {
+    long getInserts();
+
+    long getSearches();
+
+    long getRemoves();
+
+    /**
+     * Number of key comparisons (or chain entries looked at) of all searches.
+     */
+    long getComparisons();
+
+    double getComparisonsPerSearch();
+
+    int getMaxComparisons();
+
+    /**
+     * Searches by number of comparisons: entry i counts the searches with 2^(i-1) .. 2^i - 1 comparisons,
+     * entry 0 those with none.
+     */
+    long[] getComparisonHistogram();
+
+    /**
+     * Non-empty hash chains by length, in the same power-of-two buckets as the comparisons.
+     * Only filled by HashDictionary, which walks its table for it on every call.
+     */
+    long[] getChainLengthHistogram();
+
+    long getResizes();
+
+    double getResizeMillis();
+
+    long getRotations();
+
+    long getShifts();
+
+    /**
+     * Number of levels of the tree after the last change (0 if empty), -1 for dictionaries that are no tree.
+     */
+    int getTreeHeight();
+
+    void reset();
+}
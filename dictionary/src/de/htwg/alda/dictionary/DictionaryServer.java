@@ -0,0 +1,186 @@
+package de.htwg.alda.dictionary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lookup server that makes a dictionary available over a local TCP socket.
+ * <p>
+ * The protocol is line based with the commands of TestUI, one request per line:
+ * <pre>
+ * s key        search
+ * i key value  insert
+ * d key        remove
+ * </pre>
+ * Every request gets exactly one response line, in the order of the requests:
+ * "+ value" with the found, replaced or removed value, "-" if there is none,
+ * and "! message" if the request was wrong.
+ * <p>
+ * Every connection is served by its own virtual thread, so a blocked read costs no platform thread.
+ * A client may pipeline requests, i.e. send the next ones without waiting for the responses.
+ * The responses are then collected and flushed together as soon as no further request is buffered,
+ * so a batch of requests takes one write instead of one per request.
+ * <p>
+ * All connections share one dictionary, which therefore has to be thread-safe
+ * (see {@link #threadSafe(Dictionary)}).
+ * The server listens on the loopback address only.
+ */
+public class DictionaryServer implements Closeable {
+    private final Dictionary<String, String> dict;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Starts a server.
+     * @param dict thread-safe dictionary to be served.
+     * @param port port to listen on, 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public DictionaryServer(Dictionary<String, String> dict, int port) throws IOException {
+        this.dict = dict;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofVirtual().name("dictionary-acceptor").start(this::accept);
+    }
+
+    /**
+     * Returns dict itself if it is thread-safe already, otherwise a thread-safe wrapper around it.
+     * Ordered dictionaries are wrapped into a ReadMostlyDictionary, whose readers do not block each other.
+     */
+    public static Dictionary<String, String> threadSafe(Dictionary<String, String> dict) {
+        if (dict instanceof ConcurrentHashDictionary || dict instanceof ConcurrentSkipListDictionary
+                || dict instanceof PersistentTreeDictionary || dict instanceof ReadMostlyDictionary
+                || dict instanceof SynchronizedDictionary)
+            return dict;
+        if (dict instanceof OrderedDictionary<String, String> ordered)
+            return new ReadMostlyDictionary<>(ordered);
+        return new SynchronizedDictionary<>(dict);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the dictionary that is served.
+     */
+    public Dictionary<String, String> dictionary() {
+        return dict;
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // server socket closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line));
+                out.write('\n');
+                // more pipelined requests are buffered already: answer them in the same write
+                if (!in.ready())
+                    out.flush();
+            }
+        } catch (SocketException e) {
+            // connection reset by the client or closed by close()
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private String handle(String line) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            String result;
+            switch (words[0]) {
+                case "s" -> {
+                    if (words.length != 2) return "! usage: s key";
+                    result = dict.search(words[1]);
+                }
+                case "i" -> {
+                    if (words.length != 3) return "! usage: i key value";
+                    result = dict.insert(words[1], words[2]);
+                }
+                case "d" -> {
+                    if (words.length != 2) return "! usage: d key";
+                    result = dict.remove(words[1]);
+                }
+                default -> {
+                    return "! unknown command " + words[0];
+                }
+            }
+            return result == null ? "-" : "+ " + result;
+        } catch (RuntimeException e) {
+            return "! " + e.getClass().getSimpleName() + " " + e.getMessage();
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and waits for their threads to end.
+     * The dictionary is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try {
+            // after this, no connection is added any more
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket socket : connections)
+            socket.close();
+        executor.close();
+    }
+
+    /**
+     * Runs a server until the process is killed.
+     * <p>
+     * Usage: DictionaryServer [port] [wordFile]
+     * <p>
+     * Defaults are port 4711 and dtengl.txt, served by a ConcurrentHashDictionary.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4711;
+        Path file = Path.of(args.length > 1 ? args[1] : "dtengl.txt");
+
+        Dictionary<String, String> dict = new ConcurrentHashDictionary<>();
+        DictionaryLoader.Result r = DictionaryLoader.load(file, dict);
+        DictionaryServer server = new DictionaryServer(dict, port);
+        System.out.printf("Serving %d entries of %s on localhost:%d%n", r.entries(), file, server.port());
+        // virtual threads do not keep the JVM alive
+        server.acceptor.join();
+    }
+}
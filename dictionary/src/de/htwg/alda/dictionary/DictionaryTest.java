@@ -7,6 +7,24 @@
 
 package de.htwg.alda.dictionary;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
 /**
  * Static test methods for different de.htwg.alda.dictionary.Dictionary implementations.
  * @author oliverbittel
@@ -20,22 +38,189 @@ public class DictionaryTest {
 		
 		testSortedArrayDictionary();
 		testHashDictionary();
+		testRobinHoodHashDictionary();
+		testConcurrentHashDictionary();
+		testConcurrentSkipListDictionary();
+		testBPlusTreeDictionary();
+		testAdaptiveRadixTreeDictionary();
+		testDawgDictionary();
+		testMappedDictionary();
 		testBinaryTreeDictionary();
+		testPersistentTreeDictionary();
+		testReadMostlyDictionary();
+		testCachingDictionary();
+		testBloomFilteredDictionary();
+		testDictionaryLoader();
+		testSnapshots();
+		testPrimitiveDictionaries();
+		testMetrics();
+		testDictionaryServer();
 	}
 
 	private static void testSortedArrayDictionary() {
-		Dictionary<String, String> dict = new SortedArrayDictionary<>();
+		SortedArrayDictionary<String, String> dict = new SortedArrayDictionary<>();
 		testDict(dict);
+		testOrdered(dict);
+		testBatch(dict);
+
+		// reverse index English -> German, built with a parallel stream
+		Map<String, String> reverse = dict.parallelStream()
+				.collect(Collectors.toMap(Dictionary.Entry::getValue, Dictionary.Entry::getKey, (a, b) -> a, TreeMap::new));
+		System.out.println("reverse: " + reverse);
+
+		// remove from a full array
+		SortedArrayDictionary<Integer, Integer> sad = new SortedArrayDictionary<>();
+		for (int i = 0; i < 16; i++)
+			sad.insert(i, i);
+		System.out.println(sad.remove(15));							// 15
+		System.out.println(sad.remove(0));							// 0
+		System.out.println(sad.size());								// 14
+
+		// insertAll with a stable sort: of equal keys the last value wins
+		List<Dictionary.Entry<Integer, Integer>> batch = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			batch.add(new Dictionary.Entry<>(i % 50, i));
+		sad.insertAll(batch);
+		System.out.println(sad.size());								// 50
+		System.out.println(sad.search(7));							// 57
+		System.out.println(sad.search(49));							// 99
+
+		// insertAll with a parallel sort from 8192 entries on
+		batch.clear();
+		for (int i = 19999; i >= 0; i--)
+			batch.add(new Dictionary.Entry<>(i % 10000, i));
+		sad.insertAll(batch);
+		System.out.println(sad.size());								// 10000
+		System.out.println(sad.search(7));							// 7
+		System.out.println(sad.search(9999));						// 9999
+		int previous = -1;
+		boolean ascending = true;
+		for (Dictionary.Entry<Integer, Integer> e : sad) {
+			ascending &= e.getKey() > previous;
+			previous = e.getKey();
+		}
+		System.out.println(ascending);								// true
+
+		// frozen: searches run over the Eytzinger layout
+		sad.freeze();
+		System.out.println(sad.isFrozen());							// true
+		System.out.println(sad.search(0));							// 0
+		System.out.println(sad.search(9999));						// 9999
+		System.out.println(sad.search(-1) == null);					// true
+		System.out.println(sad.search(10000) == null);				// true
+		// replacing a value keeps the layout, a new key gives it up
+		System.out.println(sad.insert(5000, 42));					// 5000
+		System.out.println(sad.isFrozen());							// true
+		System.out.println(sad.search(5000));						// 42
+		sad.insert(10000, 1);
+		System.out.println(sad.isFrozen());							// false
+		System.out.println(sad.search(10000));						// 1
+		System.out.println(sad.search(5000));						// 42
 	}
 	
 	private static void testHashDictionary() {
 		Dictionary<String, String> dict = new HashDictionary<>(3);
 		testDict(dict);
+		testBatch(dict);
+	}
+	
+	private static void testRobinHoodHashDictionary() {
+		Dictionary<String, String> dict = new RobinHoodHashDictionary<>(3);
+		testDict(dict);
+	}
+	
+	private static void testConcurrentHashDictionary() {
+		Dictionary<String, String> dict = new ConcurrentHashDictionary<>(3, 2);
+		testDict(dict);
+	}
+	
+	private static void testConcurrentSkipListDictionary() {
+		Dictionary<String, String> dict = new ConcurrentSkipListDictionary<>();
+		testDict(dict);
+	}
+	
+	private static void testBPlusTreeDictionary() {
+		Dictionary<String, String> dict = new BPlusTreeDictionary<>(3);
+		testDict(dict);
+	}
+	
+	private static void testAdaptiveRadixTreeDictionary() {
+		AdaptiveRadixTreeDictionary<String> dict = new AdaptiveRadixTreeDictionary<>();
+		testDict(dict);
+
+		dict.insert("verbessern", "improve");
+		dict.insert("verbessert", "improved");
+		dict.insert("verbesserung", "improvement");
+		dict.insert("verb", "verb");
+		System.out.println("prefixIterator(\"verbesser\"):");
+		var it = dict.prefixIterator("verbesser");
+		while (it.hasNext()) {
+			var e = it.next();
+			System.out.println(e.getKey() + ": " + e.getValue());
+		}
+	}
+	
+	private static void testDawgDictionary() {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + DawgDictionary.class);
+		Dictionary<String, String> source = new SortedArrayDictionary<>();
+		source.insert("verbessern", "improve");
+		source.insert("verbessert", "improved");
+		source.insert("verbesserung", "improvement");
+		source.insert("gehen", "go");
+		source.insert("stehen", "stand");
+		source.insert("sehen", "see");
+
+		byte[] bytes = DawgDictionary.compile(source).toByteArray();
+		DawgDictionary dict = DawgDictionary.fromByteArray(bytes);
+		System.out.println(dict.size());							// 6
+		System.out.println(dict.search("verbessert").equals("improved"));	// true
+		System.out.println(dict.search("verbesser") == null);		// true
+		System.out.println(dict.search("gehen").equals("go"));		// true
+		for (Dictionary.Entry<String, String> e : dict) {
+			System.out.println(e.getKey() + ": " + e.getValue());
+		}
+		testCursor(dict);
+		// truncated, too long or with a negative count in the header
+		byte[][] corrupt = {Arrays.copyOf(bytes, bytes.length - 1), Arrays.copyOf(bytes, 40),
+				Arrays.copyOf(bytes, bytes.length + 1), bytes.clone()};
+		corrupt[3][12] = (byte) 0xff;
+		for (byte[] b : corrupt) {
+			try {
+				DawgDictionary.fromByteArray(b);
+				System.out.println(false);
+			} catch (IllegalArgumentException e) {
+				System.out.println(true);							// true
+			}
+		}
+		System.out.println(DawgDictionary.fromByteArray(
+				DawgDictionary.compile(new SortedArrayDictionary<>()).toByteArray()).size());	// 0
+	}
+	
+	private static void testMappedDictionary() {
+		try {
+			Path file = Files.createTempFile("dictionary", ".map");
+			Files.delete(file);
+			try (MappedDictionary dict = new MappedDictionary(file)) {
+				testDict(dict);
+			}
+			// everything is in the file, so opening it again restores the entries
+			try (MappedDictionary dict = new MappedDictionary(file)) {
+				System.out.println(dict.size());							// 17
+				System.out.println(dict.search("schwimmen").equals("swim"));	// true
+				System.out.println(dict.search("gehen").equals("go"));		// true
+			}
+			Files.delete(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 	
 	private static void testBinaryTreeDictionary() {
-		Dictionary<String, String> dict = new BinaryTreeDictionary<>();
+		BinaryTreeDictionary<String, String> dict = new BinaryTreeDictionary<>();
 		testDict(dict);
+		testOrdered(dict);
+		testBatch(dict);
 
         // Test für de.htwg.alda.dictionary.BinaryTreeDictionary mit prettyPrint
         // (siehe Aufgabe 10; Programmiertechnik 2).
@@ -79,8 +264,341 @@ public class DictionaryTest {
 		btd.remove(50);
         System.out.println("remove:");
         btd.prettyPrint();
+
+        SortedArrayDictionary<Integer, Integer> sad = new SortedArrayDictionary<>();
+        for (int i = 1; i <= 10; i++)
+            sad.insert(10 * i, 0);
+        btd.buildFromSorted(sad.iterator());
+        System.out.println("buildFromSorted:");
+        btd.prettyPrint();
     }
 	
+	private static void testPersistentTreeDictionary() {
+		PersistentTreeDictionary<String, String> dict = new PersistentTreeDictionary<>();
+		testDict(dict);
+		testOrdered(dict);
+
+		// der Snapshot sieht spaetere Aenderungen nicht
+		PersistentTreeDictionary<String, String> snapshot = dict.snapshot();
+		dict.insert("lachen", "laugh");
+		dict.remove("gehen");
+		System.out.println(snapshot.size() == dict.size());			// true
+		System.out.println(snapshot.search("lachen") == null);		// true
+		System.out.println(snapshot.search("gehen").equals("go"));	// true
+		// Iterieren waehrend Aenderungen, ohne ConcurrentModificationException
+		for (Dictionary.Entry<String, String> e : dict) {
+			dict.remove(e.getKey());
+		}
+		System.out.println(dict.size());							// 0
+		System.out.println(snapshot.size());						// 17
+	}
+	
+	private static void testReadMostlyDictionary() {
+		Dictionary<String, String> dict = new ReadMostlyDictionary<>(new BinaryTreeDictionary<String, String>());
+		testDict(dict);
+	}
+	
+	private static void testCachingDictionary() {
+		CachingDictionary<String, String> dict = new CachingDictionary<>(new BinaryTreeDictionary<String, String>(), 4);
+		testDict(dict);
+
+		for (int i = 0; i < 10; i++) {
+			dict.search("gehen");
+			dict.search("lesen");
+		}
+		dict.insert("gehen", "walk");
+		System.out.println(dict.search("gehen").equals("walk"));	// true
+		System.out.println(dict.cachedCount() <= 4);				// true
+		System.out.printf("hits %d, misses %d, evictions %d%n", dict.hits(), dict.misses(), dict.evictions());
+	}
+	
+	private static void testBloomFilteredDictionary() {
+		BloomFilteredDictionary<String, String> dict = new BloomFilteredDictionary<>(new SortedArrayDictionary<String, String>());
+		testDict(dict);
+
+		System.out.println(dict.search("gehn") == null);			// true
+		System.out.println(dict.search("schwimen") == null);		// true
+		System.out.printf("filtered %d, false positives %d, expected fpr %.4f, %d bytes%n", dict.filteredCount(),
+				dict.falsePositiveCount(), dict.expectedFalsePositiveRate(), dict.memoryBytes());
+	}
+	
+	private static void testDictionaryLoader() {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + DictionaryLoader.class);
+		try {
+			Path file = Files.createTempFile("words", ".txt");
+			Files.writeString(file, "gehen go\nstehen stand\n\tgehen  walk\r\nsehen see\n");
+
+			Dictionary<String, String> dict = new SortedArrayDictionary<>();
+			System.out.println(DictionaryLoader.load(file, dict).entries());	// 4
+			System.out.println(dict.size());							// 3
+			System.out.println(dict.search("gehen").equals("walk"));	// true, the last one wins
+			System.out.println(dict.search("sehen").equals("see"));		// true
+
+			dict = new HashDictionary<>();
+			System.out.println(DictionaryLoader.load(file, dict, 2).entries());	// 2
+			System.out.println(dict.search("gehen").equals("go"));		// true
+			System.out.println(DictionaryLoader.load(file, dict, -5).entries());	// 0
+			System.out.println(dict.size());							// 2
+			Files.delete(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void testSnapshots() {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + SnapshotFile.class);
+		SnapshotCodec<String> codec = SnapshotCodec.STRING;
+		try {
+			Path file = Files.createTempFile("dictionary", ".snap");
+
+			HashDictionary<String, String> hash = new HashDictionary<>();
+			testDict(hash);
+			hash.save(file, codec, codec);
+			hash = HashDictionary.load(file, codec, codec);
+			System.out.println(hash.size());							// 17
+			System.out.println(hash.search("tauchen").equals("dive"));	// true
+
+			SortedArrayDictionary<String, String> sorted = new SortedArrayDictionary<>();
+			testDict(sorted);
+			sorted.save(file, codec, codec);
+			sorted = SortedArrayDictionary.load(file, codec, codec);
+			System.out.println(sorted.size());							// 17
+			System.out.println(sorted.search("arbeiten").equals("work"));	// true
+
+			BinaryTreeDictionary<String, String> tree = new BinaryTreeDictionary<>();
+			testDict(tree);
+			tree.save(file, codec, codec);
+			tree = BinaryTreeDictionary.load(file, codec, codec);
+			System.out.println(tree.size());							// 17
+			System.out.println(tree.search("tanzen").equals("dance"));	// true
+
+			// a flipped byte in the payload fails the checksum
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[bytes.length - 1] ^= 1;
+			Files.write(file, bytes);
+			try {
+				BinaryTreeDictionary.load(file, codec, codec);
+				System.out.println(false);
+			} catch (IOException e) {
+				System.out.println(true);								// true
+			}
+			Files.delete(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void testDictionaryServer() {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + DictionaryServer.class);
+		try (DictionaryServer server = new DictionaryServer(new ConcurrentHashDictionary<>(), 0);
+			 Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+			 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			// the whole batch is sent before the first response is read
+			String batch = "i gehen go\ns gehen\ni gehen walk\nd gehen\ns gehen\nx gehen\ni gehen\n";
+			socket.getOutputStream().write(batch.getBytes(StandardCharsets.UTF_8));
+			socket.getOutputStream().flush();
+			System.out.println(in.readLine());						// -
+			System.out.println(in.readLine());						// + go
+			System.out.println(in.readLine());						// + go
+			System.out.println(in.readLine());						// + walk
+			System.out.println(in.readLine());						// -
+			System.out.println(in.readLine());						// ! unknown command x
+			System.out.println(in.readLine());						// ! usage: i key value
+			System.out.println(server.dictionary().size());			// 0
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void testMetrics() {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + DictionaryMetrics.class);
+		// ascending keys would make a degenerate tree without rotations
+		BinaryTreeDictionary<Integer, Integer> tree = new BinaryTreeDictionary<>();
+		DictionaryMetrics metrics = tree.enableMetrics();
+		for (int i = 0; i < 100; i++)
+			tree.insert(i, i);
+		System.out.println(metrics.getInserts());					// 100
+		System.out.println(metrics.getRotations() > 0);				// true
+		System.out.println(metrics.getTreeHeight() <= 8);			// true
+		tree.searchAll(new Integer[] {5, 50, 500}, new Integer[3]);
+		System.out.println(metrics.getSearches());					// 3
+
+		HashDictionary<Integer, Integer> hash = new HashDictionary<>();
+		metrics = hash.enableMetrics();
+		for (int i = 0; i < 100; i++)
+			hash.insert(i, i);
+		hash.search(1);
+		hash.searchAll(new Integer[] {5, 50, 500}, new Integer[3]);
+		System.out.println(metrics.getSearches());					// 4
+		System.out.println(metrics.getResizes() > 0);				// true
+
+		// 20 keys in 100 entries take the sorted one-pass searchAll
+		SortedArrayDictionary<Integer, Integer> sorted = new SortedArrayDictionary<>();
+		metrics = sorted.enableMetrics();
+		for (int i = 0; i < 100; i++)
+			sorted.insert(i, i);
+		Integer[] keys = new Integer[20];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = 5 * i;
+		sorted.searchAll(keys, new Integer[keys.length]);
+		System.out.println(metrics.getSearches());					// 20
+		System.out.println(metrics.getComparisons() > 0);			// true
+	}
+	
+	private static void testPrimitiveDictionaries() {
+		testIntDict(new IntHashDictionary<>());
+		testIntDict(new IntSortedArrayDictionary<>());
+		testLongDict(new LongHashDictionary<>());
+		testLongDict(new LongSortedArrayDictionary<>());
+		testIntIntDict(new IntIntHashDictionary(16, -1));
+		testIntIntDict(new IntIntSortedArrayDictionary(-1));
+	}
+	
+	// three keys whose home is the last slot of a table with 32 slots (the default capacity),
+	// so that their probe run wraps around to the first slots
+	private static int[] wrappingKeys() {
+		int[] keys = new int[3];
+		int n = 0;
+		for (int k = 1; n < keys.length; k++) {
+			if ((IntHashDictionary.hash(k) & 31) == 31)
+				keys[n++] = k;
+		}
+		return keys;
+	}
+	
+	private static void testIntDict(IntDictionary<String> dict) {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + dict.getClass());
+		int[] k = wrappingKeys();
+		System.out.println(dict.put(0, "zero") == null);			// true
+		System.out.println(dict.containsKey(0));					// true
+		dict.put(k[0], "a");
+		dict.put(k[1], "b");
+		dict.put(k[2], "c");
+		dict.put(-5, "minus");
+		System.out.println(dict.size());							// 5
+		// the keys behind the removed one are shifted back over the end of the table
+		System.out.println(dict.remove(k[0]).equals("a"));			// true
+		System.out.println(dict.get(k[0]) == null);					// true
+		System.out.println(dict.get(k[1]).equals("b"));				// true
+		System.out.println(dict.get(k[2]).equals("c"));				// true
+		System.out.println(dict.remove(0).equals("zero"));			// true
+		System.out.println(dict.containsKey(0));					// false
+		System.out.println(dict.get(0) == null);					// true
+		System.out.println(dict.put(k[1], "B").equals("b"));		// true
+		System.out.println(dict.get(-5).equals("minus"));			// true
+		System.out.println(dict.size());							// 3
+	}
+	
+	private static void testLongDict(LongDictionary<String> dict) {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + dict.getClass());
+		int[] k = wrappingKeys();
+		System.out.println(dict.put(0L, "zero") == null);			// true
+		System.out.println(dict.containsKey(0L));					// true
+		dict.put(k[0], "a");
+		dict.put(k[1], "b");
+		dict.put(k[2], "c");
+		dict.put(1L << 40, "big");
+		System.out.println(dict.size());							// 5
+		System.out.println(dict.remove(k[0]).equals("a"));			// true
+		System.out.println(dict.get(k[0]) == null);					// true
+		System.out.println(dict.get(k[1]).equals("b"));				// true
+		System.out.println(dict.get(k[2]).equals("c"));				// true
+		System.out.println(dict.get(1L << 40).equals("big"));		// true
+		System.out.println(dict.get(1L << 41) == null);				// true
+		System.out.println(dict.remove(0L).equals("zero"));			// true
+		System.out.println(dict.containsKey(0L));					// false
+		System.out.println(dict.size());							// 3
+	}
+	
+	private static void testIntIntDict(IntIntDictionary dict) {
+		System.out.println("===== New Test Case ========================");
+		System.out.println("test " + dict.getClass());
+		int[] k = wrappingKeys();
+		System.out.println(dict.get(0) == dict.noEntryValue());	// true
+		System.out.println(dict.put(0, 100) == dict.noEntryValue());	// true
+		System.out.println(dict.get(0));							// 100
+		dict.put(k[0], 1);
+		dict.put(k[1], 2);
+		dict.put(k[2], 3);
+		System.out.println(dict.size());							// 4
+		System.out.println(dict.remove(k[0]));						// 1
+		System.out.println(dict.get(k[0]) == dict.noEntryValue());	// true
+		System.out.println(dict.get(k[1]));							// 2
+		System.out.println(dict.get(k[2]));							// 3
+		System.out.println(dict.put(k[2], 30));						// 3
+		System.out.println(dict.remove(0));							// 100
+		System.out.println(dict.containsKey(0));					// false
+		System.out.println(dict.size());							// 2
+	}
+	
+	// expects the 17 entries of testDict
+	private static void testOrdered(OrderedDictionary<String, String> dict) {
+		System.out.println(dict.select(0).getKey());				// arbeiten
+		System.out.println(dict.select(dict.size() - 1).getKey());	// tauchen
+		System.out.println(dict.select(4).getKey());				// gehen
+		try {
+			dict.select(dict.size());
+			System.out.println(false);
+		} catch (IndexOutOfBoundsException e) {
+			System.out.println(true);								// true
+		}
+		System.out.println(dict.rank("arbeiten"));					// 0
+		System.out.println(dict.rank("gehen"));						// 4
+		System.out.println(dict.rank("fliegen"));					// 4
+		System.out.println(dict.rank("zaehlen"));					// 17
+		System.out.println(dict.countRange("beten", "lesen"));		// 5
+		System.out.println(dict.countRange("c", "d"));				// 0
+		System.out.println(dict.countRange("lesen", "beten"));		// 0
+		Iterator<Dictionary.Entry<String, String>> it = dict.iteratorFrom(15);
+		System.out.println(it.next().getKey());						// tanzen
+		System.out.println(it.next().getKey());						// tauchen
+		System.out.println(it.hasNext());							// false
+		System.out.println(dict.iteratorFrom(dict.size()).hasNext());	// false
+		try {
+			dict.iteratorFrom(-1);
+			System.out.println(false);
+		} catch (IndexOutOfBoundsException e) {
+			System.out.println(true);								// true
+		}
+	}
+	
+	// expects the 17 entries of testDict
+	private static void testBatch(Dictionary<String, String> dict) {
+		// few keys: looked up one by one
+		String[] out = new String[3];
+		dict.searchAll(new String[] {"tanzen", "fliegen", "arbeiten"}, out);
+		System.out.println(Arrays.toString(out));					// [dance, null, work]
+
+		// many keys: sorted and looked up in one pass
+		out = new String[8];
+		dict.searchAll(new String[] {"tauchen", "zaehlen", "beten", "gehen", "aaa", "beten", "lesen", "singen"}, out);
+		System.out.println(Arrays.toString(out));					// [dive, null, pray, go, null, pray, read, sing]
+
+		try {
+			dict.searchAll(new String[] {"gehen", "lesen"}, new String[1]);
+			System.out.println(false);
+		} catch (IllegalArgumentException e) {
+			System.out.println(true);								// true
+		}
+
+		// if a key occurs more than once, the last value wins
+		dict.insertAll(List.of(new Dictionary.Entry<>("laufen", "run"), new Dictionary.Entry<>("laufen", "walk")));
+		System.out.println(dict.search("laufen").equals("walk"));	// true
+		dict.insertAll(List.of(new Dictionary.Entry<>("gehen", "walk"), new Dictionary.Entry<>("kochen", "cook"),
+				new Dictionary.Entry<>("essen", "eat"), new Dictionary.Entry<>("gehen", "leave"),
+				new Dictionary.Entry<>("malen", "paint"), new Dictionary.Entry<>("essen", "dine")));
+		System.out.println(dict.size());							// 21
+		System.out.println(dict.search("gehen").equals("leave"));	// true
+		System.out.println(dict.search("essen").equals("dine"));	// true
+		System.out.println(dict.search("kochen").equals("cook"));	// true
+	}
+	
 	private static void testDict(Dictionary<String, String> dict) {
 		System.out.println("===== New Test Case ========================");
 		System.out.println("test " + dict.getClass());
@@ -113,6 +631,34 @@ public class DictionaryTest {
 		for (Dictionary.Entry<String, String> e : dict) {
 			System.out.println(e.getKey() + ": " + e.getValue() + " search: " + dict.search(e.getKey()));
 		}
+		testCursor(dict);
+	}
+	
+	// cursor and forEach see the same entries as the iterator
+	private static void testCursor(Dictionary<String, String> dict) {
+		StringBuilder byIterator = new StringBuilder();
+		for (Dictionary.Entry<String, String> e : dict)
+			byIterator.append(e.getKey()).append('=').append(e.getValue()).append(' ');
+		StringBuilder byCursor = new StringBuilder();
+		DictionaryCursor<String, String> c = dict.cursor();
+		try {
+			c.key();
+			System.out.println(false);
+		} catch (NoSuchElementException e) {
+			System.out.println(true);								// true
+		}
+		while (c.advance())
+			byCursor.append(c.key()).append('=').append(c.value()).append(' ');
+		try {
+			c.key();
+			System.out.println(false);
+		} catch (NoSuchElementException e) {
+			System.out.println(true);								// true
+		}
+		StringBuilder byForEach = new StringBuilder();
+		dict.forEach((k, v) -> byForEach.append(k).append('=').append(v).append(' '));
+		System.out.println(byCursor.toString().equals(byIterator.toString()));	// true
+		System.out.println(byForEach.toString().equals(byIterator.toString()));	// true
 	}
 	
 }
@@ -1,54 +1,79 @@
 package de.htwg.alda.dictionary;
 
-import java.math.BigInteger;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
-public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
-    private static final int DEF_CAPACITY = 7;
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface as hash table with chaining.
+ * <p>
+ * The table size is always a power of two; the hash codes are mixed before they are reduced
+ * to a bucket index, so keys with similar hash codes still spread over all buckets.
+ * <p>
+ * When the table gets too full it is resized incrementally: the old and the new bucket array
+ * coexist and every insert, search and remove moves a few buckets from the old into the new array.
+ * Until all buckets are moved, lookups consult both arrays.
+ * With incremental resizing turned off, all buckets are moved at once.
+ * <p>
+ * With metrics enabled (see Instrumented), the entries looked at per search, the chain lengths
+ * and the resizes with the time spent moving buckets are recorded.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K, V>, Instrumented {
+    private static final int DEF_CAPACITY = 8;
     private static final int LOAD_FACTOR = 2;
+    // number of old buckets moved per operation while resizing
+    private static final int MIGRATE_STEP = 4;
 
     private LinkedList<Entry<K, V>>[] data;
+    // bucket array of an unfinished resize, otherwise null
+    private LinkedList<Entry<K, V>>[] oldData;
+    // all buckets of oldData below this index are moved already
+    private int migrated;
+    private final boolean incrementalResize;
     private int size;
     private int modCount = 0;
+    // null while metrics are disabled
+    private DictionaryMetrics metrics = null;
 
     public HashDictionary() {
         this(DEF_CAPACITY);
     }
 
-    @SuppressWarnings("unchecked")
     public HashDictionary(int capacity) {
-        this.data = new LinkedList[capacity];
+        this(capacity, true);
+    }
+
+    public HashDictionary(int capacity, boolean incrementalResize) {
+        this.data = newTable(tableSizeFor(capacity));
+        this.incrementalResize = incrementalResize;
         this.size = 0;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public V insert(K key, V value) {
-        int index = hash(key);
-        LinkedList<Entry<K, V>> list = data[index];
-
-        // init new list if none is present
-        if (list == null)
-            list = data[index] = new LinkedList<>();
+        migrate();
+        if (metrics != null) metrics.recordInsert();
 
         // check if key is already present
-        for (var e : list) {
-            if (e.getKey().equals(key)) {
-                return e.setValue(value);
-            }
-        }
+        Entry<K, V> e = find(key);
+        if (e != null)
+            return e.setValue(value);
 
         // increase size when too much load
-        if (size >= data.length * LOAD_FACTOR) {
-            var newData = new LinkedList[BigInteger.valueOf(data.length * 2L).nextProbablePrime().intValue()];
-            copyTo(newData);
-            data = newData;
-        }
+        if (size >= data.length * LOAD_FACTOR)
+            startResize();
 
-        list.push(new Entry<>(key, value));
+        insert(new Entry<>(key, value), data);
         size++;
         modCount++;
 
@@ -57,27 +82,93 @@ public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K,
 
     @Override
     public V search(K key) {
-        int index = hash(key);
-        LinkedList<Entry<K, V>> list = data[index];
-        if (list == null || list.isEmpty())
-            return null;
+        migrate();
+        if (metrics != null) metrics.recordSearch(comparisons(key));
 
-        for (Entry<K, V> e : list) {
-            if (e.getKey().compareTo(key) == 0)
-                return e.getValue();
+        Entry<K, V> e = find(key);
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Looks up all keys: first the buckets of all keys are computed, then the buckets are probed.
+     * Like search, it does one step of a pending resize and looks in the old table before the new one.
+     */
+    @Override
+    public void searchAll(K[] keys, V[] out) {
+        if (out.length < keys.length)
+            throw new IllegalArgumentException("out is shorter than keys");
+        migrate();
+        if (metrics != null) {
+            for (K key : keys)
+                metrics.recordSearch(comparisons(key));
         }
 
+        LinkedList<Entry<K, V>>[] old = oldData;
+        int[] buckets = new int[keys.length];
+        int[] oldBuckets = (old != null) ? new int[keys.length] : null;
+        for (int i = 0; i < keys.length; i++) {
+            buckets[i] = hash(keys[i], data.length);
+            if (old != null)
+                oldBuckets[i] = hash(keys[i], old.length);
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            V value = (old != null) ? searchList(old[oldBuckets[i]], keys[i]) : null;
+            if (value == null)
+                value = searchList(data[buckets[i]], keys[i]);
+            out[i] = value;
+        }
+    }
+
+    private static <K, V> V searchList(LinkedList<Entry<K, V>> list, K key) {
+        if (list == null)
+            return null;
+        // walk the nodes directly, an iterator per lookup is not needed
+        for (var node = list.first; node != null; node = node.next) {
+            if (node.value.getKey().equals(key))
+                return node.value.getValue();
+        }
         return null;
     }
 
+    /**
+     * Inserts all entries. If entries is a Collection, the table is enlarged once
+     * to its final size before, instead of being doubled several times while inserting.
+     */
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        if (entries instanceof Collection<?> c)
+            reserve(size + c.size());
+        for (Entry<K, V> e : entries)
+            insert(e.getKey(), e.getValue());
+    }
+
+    /**
+     * Enlarges the table at once, so that n entries fit without a resize.
+     */
+    private void reserve(int n) {
+        finishResize();
+        if (n <= data.length * LOAD_FACTOR)
+            return;
+
+        oldData = data;
+        data = newTable(tableSizeFor((n + LOAD_FACTOR - 1) / LOAD_FACTOR));
+        migrated = 0;
+        if (metrics != null) metrics.recordResize(0);
+        finishResize();
+    }
+
     @Override
     public V remove(K key) {
-        int index = hash(key);
-        LinkedList<Entry<K, V>> list = data[index];
-        if (list == null || list.isEmpty())
-            return null;
+        migrate();
+        if (metrics != null) metrics.recordRemove();
+
+        Entry<K, V> removed = null;
+        if (oldData != null)
+            removed = remove(key, oldData);
+        if (removed == null)
+            removed = remove(key, data);
 
-        Entry<K, V> removed = list.pop((entry) -> entry.getKey().compareTo(key) == 0);
         if (removed == null)
             return null;
         else {
@@ -92,8 +183,77 @@ public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K,
         return size;
     }
 
+    /**
+     * Writes all entries to file as binary snapshot (see SnapshotFile), bucket by bucket.
+     * A pending resize is finished before.
+     * @param file file to be written, an existing file is replaced.
+     * @param keyCodec converts the keys to bytes.
+     * @param valueCodec converts the values to bytes.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path file, SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        finishResize();
+        var writer = new SnapshotFile.Writer(SnapshotFile.HASH, size, data.length);
+        for (LinkedList<Entry<K, V>> list : data) {
+            if (list == null) {
+                writer.writeVarInt(0);
+                continue;
+            }
+            writer.writeVarInt(list.size);
+            for (var node = list.first; node != null; node = node.next) {
+                writer.write(node.value.getKey(), keyCodec);
+                writer.write(node.value.getValue(), valueCodec);
+            }
+        }
+        writer.writeTo(file);
+    }
+
+    /**
+     * Reads a dictionary from a binary snapshot written by save of a HashDictionary.
+     * The table gets the saved size and every entry goes back into its saved bucket, so no key is hashed.
+     * This requires keys whose hashCode does not change between program runs, like String and Integer.
+     * @param file snapshot file.
+     * @param keyCodec converts bytes to keys, must match the codec used by save.
+     * @param valueCodec converts bytes to values, must match the codec used by save.
+     * @return the loaded dictionary.
+     * @throws IOException if the file cannot be read, is no hash snapshot of a supported version or is corrupt.
+     */
+    public static <K extends Comparable<K>, V> HashDictionary<K, V> load(Path file,
+            SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        var reader = new SnapshotFile.Reader(file, SnapshotFile.HASH);
+        int tableLength = reader.tableLength();
+        if (tableLength < 2 || Integer.bitCount(tableLength) != 1)
+            throw new IOException("corrupt snapshot, table length " + tableLength + ": " + file);
+
+        HashDictionary<K, V> dict = new HashDictionary<>(tableLength);
+        long total = 0;
+        try {
+            for (int i = 0; i < tableLength; i++) {
+                int n = reader.readVarInt();
+                if (n == 0)
+                    continue;
+                if (n < 0 || total + n > reader.count())
+                    throw reader.corrupt(null);
+                total += n;
+                LinkedList<Entry<K, V>> list = dict.data[i] = new LinkedList<>();
+                for (int j = 0; j < n; j++)
+                    list.push(new Entry<>(reader.read(keyCodec), reader.read(valueCodec)));
+            }
+        } catch (RuntimeException e) {
+            throw reader.corrupt(e);
+        }
+        if (total != reader.count())
+            throw reader.corrupt(null);
+        reader.finish();
+        dict.size = reader.count();
+        return dict;
+    }
+
     @Override
     public Iterator<Entry<K, V>> iterator() {
+        // entries must not move between the arrays while iterating
+        finishResize();
+
         return new Iterator<>() {
             private final int expectedModCount = modCount;
             private int index = 0;
@@ -105,8 +265,8 @@ public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K,
 
                 // stop overflow
                 while (index < data.length) {
-                    // we have a list on the index
-                    if (data[index] != null) {
+                    // we have a non-empty list on the index
+                    if (data[index] != null && !data[index].isEmpty()) {
                         // take its iterator
                         linkedListIt = data[index].iterator();
                         index++;
@@ -137,14 +297,289 @@ public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K,
         };
     }
 
-    private int hash(K key) {
-        return hash(key, data.length);
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        finishResize();
+
+        // walks the list nodes directly, no iterator per bucket
+        return new DictionaryCursor<>() {
+            private final int expectedModCount = modCount;
+            private int index = 0;
+            private LinkedList.Node<Entry<K, V>> node;
+
+            @Override
+            public boolean advance() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                if (node != null)
+                    node = node.next;
+                while (node == null && index < data.length) {
+                    if (data[index] != null)
+                        node = data[index].first;
+                    index++;
+                }
+                return node != null;
+            }
+
+            @Override
+            public K key() {
+                if (node == null)
+                    throw new NoSuchElementException();
+                return node.value.getKey();
+            }
+
+            @Override
+            public V value() {
+                if (node == null)
+                    throw new NoSuchElementException();
+                return node.value.getValue();
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        // entries must not move between the arrays while splitting
+        finishResize();
+        return new BucketSpliterator(0, data.length, size, modCount);
+    }
+
+    /**
+     * Spliterator over the buckets from index to fence; splitting halves the bucket range.
+     * The parts estimate half of the entries of the range they were split from.
+     */
+    private class BucketSpliterator implements Spliterator<Entry<K, V>> {
+        private int index;
+        private final int fence;
+        private int est;
+        private final int expectedModCount;
+        // only the unsplit spliterator knows its size exactly
+        private boolean sized;
+        // next node in the current bucket, or null if the next bucket has to be started
+        private LinkedList.Node<Entry<K, V>> node;
+
+        BucketSpliterator(int index, int fence, int est, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+            this.sized = index == 0 && fence == data.length;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            // a started bucket stays with this spliterator
+            if (mid <= index || node != null)
+                return null;
+
+            est >>>= 1;
+            sized = false;
+            var prefix = new BucketSpliterator(index, mid, est, expectedModCount);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            while (node == null && index < fence) {
+                if (data[index] != null)
+                    node = data[index].first;
+                index++;
+            }
+            if (node == null)
+                return false;
+
+            Entry<K, V> e = node.value;
+            node = node.next;
+            if (est > 0)
+                est--;
+            action.accept(e);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            for (; node != null; node = node.next)
+                action.accept(node.value);
+            for (; index < fence; index++) {
+                if (data[index] == null)
+                    continue;
+                for (var n = data[index].first; n != null; n = n.next)
+                    action.accept(n.value);
+            }
+            est = 0;
+
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return (sized ? SIZED : 0) | DISTINCT | NONNULL;
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishResize();
+        int expectedModCount = modCount;
+
+        for (LinkedList<Entry<K, V>> list : data) {
+            if (list == null)
+                continue;
+            for (var node = list.first; node != null; node = node.next)
+                action.accept(node.value.getKey(), node.value.getValue());
+        }
+
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    private Entry<K, V> find(K key) {
+        if (oldData != null) {
+            Entry<K, V> e = find(key, oldData);
+            if (e != null)
+                return e;
+        }
+        return find(key, data);
+    }
+
+    private void startResize() {
+        // a resize is only started when the previous one has finished
+        finishResize();
+
+        oldData = data;
+        data = newTable(oldData.length * 2);
+        migrated = 0;
+        if (metrics != null) metrics.recordResize(0);
+
+        if (!incrementalResize)
+            finishResize();
+    }
+
+    private void migrate() {
+        if (oldData != null)
+            migrate(MIGRATE_STEP);
+    }
+
+    private void finishResize() {
+        if (oldData != null)
+            migrate(oldData.length);
+    }
+
+    private void migrate(int buckets) {
+        // the time of a resize is the sum of its steps
+        long start = (metrics != null) ? System.nanoTime() : 0;
+        int end = Math.min(migrated + buckets, oldData.length);
+        for (; migrated < end; migrated++) {
+            LinkedList<Entry<K, V>> list = oldData[migrated];
+            if (list != null) {
+                for (var e : list)
+                    insert(e, data);
+                oldData[migrated] = null;
+            }
+        }
+
+        if (migrated == oldData.length)
+            oldData = null;
+        if (metrics != null) metrics.recordResizeStep(System.nanoTime() - start);
     }
 
-    private void copyTo(LinkedList<Entry<K, V>>[] dest) {
-        for (var e : this) {
-            insert(e, dest);
+    /**
+     * Returns the number of entries a search for key looks at.
+     */
+    private int comparisons(K key) {
+        int n = 0;
+        if (oldData != null) {
+            n = comparisons(key, oldData);
+            if (n < 0)
+                return -n;
         }
+        return n + Math.abs(comparisons(key, data));
+    }
+
+    /**
+     * Returns the number of entries looked at in the chain of key, negative if key was found.
+     */
+    private static <K, V> int comparisons(K key, LinkedList<Entry<K, V>>[] table) {
+        LinkedList<Entry<K, V>> list = table[hash(key, table.length)];
+        int n = 0;
+        if (list != null) {
+            for (var node = list.first; node != null; node = node.next) {
+                n++;
+                if (node.value.getKey().equals(key))
+                    return -n;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public DictionaryMetrics enableMetrics() {
+        if (metrics == null)
+            metrics = new DictionaryMetrics(this::chainLengthHistogram);
+        return metrics;
+    }
+
+    @Override
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    @Override
+    public DictionaryMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Walks the table for the chain lengths. As it only reads the list sizes,
+     * it may run in another thread (e.g. for JMX) while the dictionary is changed.
+     */
+    private long[] chainLengthHistogram() {
+        long[] histogram = DictionaryMetrics.newHistogram();
+        addChainLengths(histogram, data);
+        LinkedList<Entry<K, V>>[] old = oldData;
+        if (old != null)
+            addChainLengths(histogram, old);
+        return histogram;
+    }
+
+    private static <T> void addChainLengths(long[] histogram, LinkedList<T>[] table) {
+        for (LinkedList<T> list : table) {
+            if (list != null && !list.isEmpty())
+                histogram[DictionaryMetrics.bucketOf(list.size)]++;
+        }
+    }
+
+    private static <K, V> Entry<K, V> find(K key, LinkedList<Entry<K, V>>[] table) {
+        LinkedList<Entry<K, V>> list = table[hash(key, table.length)];
+        if (list == null || list.isEmpty())
+            return null;
+
+        for (Entry<K, V> e : list) {
+            if (e.getKey().equals(key))
+                return e;
+        }
+
+        return null;
+    }
+
+    private static <K, V> Entry<K, V> remove(K key, LinkedList<Entry<K, V>>[] table) {
+        LinkedList<Entry<K, V>> list = table[hash(key, table.length)];
+        if (list == null || list.isEmpty())
+            return null;
+
+        return list.pop((entry) -> entry.getKey().equals(key));
     }
 
     private static <K, V> void insert(Entry<K, V> entry, LinkedList<Entry<K, V>>[] dest) {
@@ -156,12 +591,20 @@ public class HashDictionary<K extends Comparable<K>, V> implements Dictionary<K,
     }
 
     private static <K> int hash(K key, int m) {
-        int index = key.hashCode();
-        if (index < 0)
-            index = -index;
-        index = index % m;
+        // mix the bits of hashCode, since only the lower bits select the bucket
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h & (m - 1);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Math.max(capacity, 2);
+        return Integer.highestOneBit(n - 1) << 1;
+    }
 
-        return index;
+    @SuppressWarnings("unchecked")
+    private static <K, V> LinkedList<Entry<K, V>>[] newTable(int capacity) {
+        return new LinkedList[capacity];
     }
 
     private static class LinkedList<T> implements Iterable<T> {
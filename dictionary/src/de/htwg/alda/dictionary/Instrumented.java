@@ -0,0 +1,27 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Dictionary that can record DictionaryMetrics about its operations.
+ * <p>
+ * Metrics are off by default. While they are off, an operation pays for one null check only.
+ * Like the dictionary itself, the metrics are not thread-safe; readers in other threads (e.g. JMX)
+ * may see slightly old values, and concurrent searches (e.g. in a ReadMostlyDictionary) may lose counts.
+ */
+public interface Instrumented {
+    /**
+     * Starts recording metrics. If they are recorded already, the existing metrics are kept.
+     * @return the metrics of this dictionary.
+     */
+    DictionaryMetrics enableMetrics();
+
+    /**
+     * Stops recording metrics and drops the recorded ones.
+     */
+    void disableMetrics();
+
+    /**
+     * Returns the recorded metrics.
+     * @return the metrics of this dictionary, or null if they are not recorded.
+     */
+    DictionaryMetrics metrics();
+}
@@ -0,0 +1,46 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Collection of entries with primitive int keys.
+ * <p>
+ * Same contract as de.htwg.alda.dictionary.Dictionary, but the keys are neither boxed
+ * nor compared through Comparable, so get, put and remove do not allocate.
+ *
+ * @param <V> the type of mapped values.
+ */
+public interface IntDictionary<V> {
+    /**
+     * Associates the specified value with the specified key.
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no mapping for key.
+     */
+    V put(int key, V value);
+
+    /**
+     * Returns the value to which the specified key is mapped.
+     * @param key the key whose associated value is to be returned.
+     * @return the value to which the specified key is mapped, or null if there is no mapping for the key.
+     */
+    V get(int key);
+
+    /**
+     * Removes the mapping of key.
+     * @param key key whose mapping is to be removed.
+     * @return the previous value associated with key, or null if there was no mapping for key.
+     */
+    V remove(int key);
+
+    /**
+     * Returns true if there is a mapping for key.
+     * @param key key to look for.
+     * @return true if there is a mapping for key.
+     */
+    boolean containsKey(int key);
+
+    /**
+     * Returns the number of entries in this dictionary.
+     * @return the number of entries in this dictionary.
+     */
+    int size();
+}
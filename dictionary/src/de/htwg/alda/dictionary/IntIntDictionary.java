@@ -0,0 +1,51 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Collection of entries with primitive int keys and int values.
+ * <p>
+ * Same contract as de.htwg.alda.dictionary.Dictionary, but neither keys nor values are boxed.
+ * Since there is no null for int, a missing mapping is reported as {@link #noEntryValue()}.
+ */
+public interface IntIntDictionary {
+    /**
+     * Associates the specified value with the specified key.
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with key, or noEntryValue() if there was no mapping for key.
+     */
+    int put(int key, int value);
+
+    /**
+     * Returns the value to which the specified key is mapped.
+     * @param key the key whose associated value is to be returned.
+     * @return the value to which the specified key is mapped, or noEntryValue() if there is no mapping for the key.
+     */
+    int get(int key);
+
+    /**
+     * Removes the mapping of key.
+     * @param key key whose mapping is to be removed.
+     * @return the previous value associated with key, or noEntryValue() if there was no mapping for key.
+     */
+    int remove(int key);
+
+    /**
+     * Returns true if there is a mapping for key.
+     * Needed to tell a missing key from a key mapped to noEntryValue().
+     * @param key key to look for.
+     * @return true if there is a mapping for key.
+     */
+    boolean containsKey(int key);
+
+    /**
+     * Returns the number of entries in this dictionary.
+     * @return the number of entries in this dictionary.
+     */
+    int size();
+
+    /**
+     * Returns the value that get, put and remove return for a missing mapping.
+     * @return the value standing for "no mapping".
+     */
+    int noEntryValue();
+}
@@ -0,0 +1,151 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.IntIntDictionary interface as open addressing hash table
+ * with linear probing.
+ * <p>
+ * The keys are stored in an int array, 0 marks a free slot.
+ * The key 0 itself is therefore kept outside of the table.
+ * Removing shifts the following entries back, so no tombstones are needed.
+ * A missing mapping is reported as the no-entry value given at creation time (default 0).
+ */
+public class IntIntHashDictionary implements IntIntDictionary {
+    private static final int DEF_CAPACITY = 16;
+    private static final int FREE = 0;
+    // maximal load is LOAD_NUM / LOAD_DEN
+    private static final int LOAD_NUM = 3;
+    private static final int LOAD_DEN = 4;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    // number of keys in the table, without the free key
+    private int used;
+    private boolean hasFreeKey;
+    private int freeValue;
+    private final int noEntryValue;
+
+    public IntIntHashDictionary() {
+        this(DEF_CAPACITY, 0);
+    }
+
+    public IntIntHashDictionary(int capacity, int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        this.freeValue = noEntryValue;
+        allocate(IntHashDictionary.tableSizeFor(capacity * LOAD_DEN / LOAD_NUM + 1));
+    }
+
+    @Override
+    public int put(int key, int value) {
+        if (key == FREE) {
+            int old = freeValue;
+            freeValue = value;
+            hasFreeKey = true;
+            return old;
+        }
+
+        int i = IntHashDictionary.hash(key) & mask;
+        for (int k; (k = keys[i]) != FREE; i = (i + 1) & mask) {
+            if (k == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++used * LOAD_DEN > keys.length * LOAD_NUM)
+            resize(keys.length * 2);
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(int key) {
+        if (key == FREE)
+            return freeValue;
+
+        int i = indexOf(key);
+        return i < 0 ? noEntryValue : values[i];
+    }
+
+    @Override
+    public int remove(int key) {
+        if (key == FREE) {
+            int old = freeValue;
+            freeValue = noEntryValue;
+            hasFreeKey = false;
+            return old;
+        }
+
+        int i = indexOf(key);
+        if (i < 0)
+            return noEntryValue;
+
+        int old = values[i];
+        shiftBack(i);
+        used--;
+        return old;
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return key == FREE ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return hasFreeKey ? used + 1 : used;
+    }
+
+    private int indexOf(int key) {
+        int i = IntHashDictionary.hash(key) & mask;
+        for (int k; (k = keys[i]) != FREE; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Closes the gap at slot i by moving back entries whose probe sequence runs over i.
+     */
+    private void shiftBack(int i) {
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = IntHashDictionary.hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = IntHashDictionary.hash(oldKeys[j]) & mask;
+                while (keys[i] != FREE)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @Override
+    public int noEntryValue() {
+        return noEntryValue;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+}
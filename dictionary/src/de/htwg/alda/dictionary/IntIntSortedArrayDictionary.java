@@ -0,0 +1,88 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.IntIntDictionary interface as sorted array.
+ * <p>
+ * Keys and values are kept in two parallel arrays, the keys in ascending order.
+ * A lookup is a binary search over the int array.
+ * A missing mapping is reported as the no-entry value given at creation time (default 0).
+ */
+public class IntIntSortedArrayDictionary implements IntIntDictionary {
+    private static final int INITIAL_CAP = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private final int noEntryValue;
+
+    public IntIntSortedArrayDictionary() {
+        this(0);
+    }
+
+    public IntIntSortedArrayDictionary(int noEntryValue) {
+        this.keys = new int[INITIAL_CAP];
+        this.values = new int[INITIAL_CAP];
+        this.size = 0;
+        this.noEntryValue = noEntryValue;
+    }
+
+    @Override
+    public int put(int key, int value) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            int old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        // make room at the insertion point
+        i = -i - 1;
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(int key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        return i < 0 ? noEntryValue : values[i];
+    }
+
+    @Override
+    public int remove(int key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0)
+            return noEntryValue;
+
+        int old = values[i];
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        return old;
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return Arrays.binarySearch(keys, 0, size, key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int noEntryValue() {
+        return noEntryValue;
+    }
+}
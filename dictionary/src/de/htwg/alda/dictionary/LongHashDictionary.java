@@ -0,0 +1,146 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.LongDictionary interface as open addressing hash table
+ * with linear probing.
+ * <p>
+ * The keys are stored in a long array, 0 marks a free slot.
+ * The key 0 itself is therefore kept outside of the table.
+ * Removing shifts the following entries back, so no tombstones are needed.
+ *
+ * @param <V> Value.
+ */
+public class LongHashDictionary<V> implements LongDictionary<V> {
+    private static final int DEF_CAPACITY = 16;
+    private static final long FREE = 0;
+    // maximal load is LOAD_NUM / LOAD_DEN
+    private static final int LOAD_NUM = 3;
+    private static final int LOAD_DEN = 4;
+
+    private long[] keys;
+    private V[] values;
+    private int mask;
+    // number of keys in the table, without the free key
+    private int used;
+    private boolean hasFreeKey;
+    private V freeValue;
+
+    public LongHashDictionary() {
+        this(DEF_CAPACITY);
+    }
+
+    public LongHashDictionary(int capacity) {
+        allocate(IntHashDictionary.tableSizeFor(capacity * LOAD_DEN / LOAD_NUM + 1));
+    }
+
+    @Override
+    public V put(long key, V value) {
+        if (key == FREE) {
+            V old = freeValue;
+            freeValue = value;
+            hasFreeKey = true;
+            return old;
+        }
+
+        int i = IntHashDictionary.hash(key) & mask;
+        for (long k; (k = keys[i]) != FREE; i = (i + 1) & mask) {
+            if (k == key) {
+                V old = values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++used * LOAD_DEN > keys.length * LOAD_NUM)
+            resize(keys.length * 2);
+        return null;
+    }
+
+    @Override
+    public V get(long key) {
+        if (key == FREE)
+            return freeValue;
+
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public V remove(long key) {
+        if (key == FREE) {
+            V old = freeValue;
+            freeValue = null;
+            hasFreeKey = false;
+            return old;
+        }
+
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+
+        V old = values[i];
+        shiftBack(i);
+        used--;
+        return old;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return key == FREE ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return hasFreeKey ? used + 1 : used;
+    }
+
+    private int indexOf(long key) {
+        int i = IntHashDictionary.hash(key) & mask;
+        for (long k; (k = keys[i]) != FREE; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Closes the gap at slot i by moving back entries whose probe sequence runs over i.
+     */
+    private void shiftBack(int i) {
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = IntHashDictionary.hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+        values[i] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = IntHashDictionary.hash(oldKeys[j]) & mask;
+                while (keys[i] != FREE)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,79 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.LongDictionary interface as sorted array.
+ * <p>
+ * Keys and values are kept in two parallel arrays, the keys in ascending order.
+ * A lookup is a binary search over the long array.
+ *
+ * @param <V> Value.
+ */
+public class LongSortedArrayDictionary<V> implements LongDictionary<V> {
+    private static final int INITIAL_CAP = 16;
+
+    private long[] keys;
+    private V[] values;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public LongSortedArrayDictionary() {
+        this.keys = new long[INITIAL_CAP];
+        this.values = (V[]) new Object[INITIAL_CAP];
+        this.size = 0;
+    }
+
+    @Override
+    public V put(long key, V value) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            V old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        // make room at the insertion point
+        i = -i - 1;
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public V get(long key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public V remove(long key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0)
+            return null;
+
+        V old = values[i];
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        values[--size] = null;
+        return old;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return Arrays.binarySearch(keys, 0, size, key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,437 @@
+package de.htwg.alda.dictionary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface for strings,
+ * kept in a memory-mapped file instead of the heap.
+ * <p>
+ * The file holds a header, an open addressing hash index with linear probing and the records.
+ * Every record stores the UTF-8 bytes of its key and its value; a value that gets longer than the space
+ * reserved for it is written as a new record at the end of the file.
+ * All changes go directly to the mapped file, so opening an existing file again restores
+ * the dictionary without parsing anything.
+ * <p>
+ * A lookup compares the key with the record bytes in the mapped buffer character by character,
+ * without decoding the record key into a String; only the found value is decoded.
+ * <p>
+ * Space of replaced records and of outgrown indices is not reused. The file is limited to 2 GB.
+ * Null values are not allowed.
+ */
+public class MappedDictionary implements Dictionary<String, String>, Closeable {
+    private static final int MAGIC = 0x414C4441; // "ALDA"
+    private static final int VERSION = 1;
+
+    // header: magic, version, index offset, index capacity, size, used slots, end of data
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int INDEX_POS = 8;
+    private static final int CAPACITY_POS = 12;
+    private static final int SIZE_POS = 16;
+    private static final int USED_POS = 20;
+    private static final int END_POS = 24;
+    private static final int HEADER_SIZE = 32;
+
+    // index slot: record offset and hash of the key
+    private static final int SLOT_SIZE = 8;
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+    private static final int DEF_CAPACITY = 1024;
+
+    // record: key length, value capacity, value length, key bytes, value bytes
+    private static final int RECORD_HEADER = 12;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int indexOffset;
+    private int capacity;
+    private int size;
+    // slots that are not empty, including removed ones
+    private int used;
+    private int end;
+    private int modCount = 0;
+
+    /**
+     * Opens the dictionary stored in file, or creates a new one if the file does not exist or is empty.
+     * @param file file holding the dictionary.
+     * @throws IOException if the file cannot be opened or is no dictionary file.
+     */
+    public MappedDictionary(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            open(file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            map(HEADER_SIZE + (long) DEF_CAPACITY * SLOT_SIZE);
+            buffer.putInt(MAGIC_POS, MAGIC);
+            buffer.putInt(VERSION_POS, VERSION);
+            indexOffset = HEADER_SIZE;
+            capacity = DEF_CAPACITY;
+            size = 0;
+            used = 0;
+            end = HEADER_SIZE + DEF_CAPACITY * SLOT_SIZE;
+            writeHeader();
+        } else {
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE)
+                throw new IOException("not a dictionary file: " + file);
+            map(fileSize);
+            if (buffer.getInt(MAGIC_POS) != MAGIC || buffer.getInt(VERSION_POS) != VERSION)
+                throw new IOException("not a dictionary file: " + file);
+            indexOffset = buffer.getInt(INDEX_POS);
+            capacity = buffer.getInt(CAPACITY_POS);
+            size = buffer.getInt(SIZE_POS);
+            used = buffer.getInt(USED_POS);
+            end = buffer.getInt(END_POS);
+
+            // the index and the records must lie within the data, and the data within the file
+            if (capacity <= 0 || Integer.bitCount(capacity) != 1 || indexOffset < HEADER_SIZE
+                    || (long) indexOffset + (long) capacity * SLOT_SIZE > end || end > fileSize
+                    || size < 0 || size > used || (long) used * 2 > capacity)
+                throw new IOException("corrupt dictionary file: " + file);
+        }
+    }
+
+    @Override
+    public String insert(String key, String value) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        int slot = findSlot(key, h);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+
+        // key is already present
+        if (slot >= 0) {
+            int record = recordAt(slot);
+            String old = readValue(record);
+            if (valueBytes.length <= buffer.getInt(record + 4)) {
+                // the new value fits into the old record
+                buffer.put(valueStart(record), valueBytes);
+                buffer.putInt(record + 8, valueBytes.length);
+            } else {
+                setSlot(slot, appendRecord(key.getBytes(StandardCharsets.UTF_8), valueBytes), h);
+            }
+            modCount++;
+            return old;
+        }
+
+        // increase index size when too much load
+        if ((used + 1) * 2 > capacity) {
+            resizeIndex();
+            slot = findSlot(key, h);
+        }
+
+        slot = -slot - 1;
+        if (recordAt(slot) == EMPTY)
+            used++;
+        int record = appendRecord(key.getBytes(StandardCharsets.UTF_8), valueBytes);
+        setSlot(slot, record, h);
+        size++;
+        modCount++;
+        writeHeader();
+        return null;
+    }
+
+    @Override
+    public String search(String key) {
+        int slot = findSlot(key, hash(key));
+        return slot < 0 ? null : readValue(recordAt(slot));
+    }
+
+    @Override
+    public String remove(String key) {
+        int slot = findSlot(key, hash(key));
+        if (slot < 0)
+            return null;
+
+        String old = readValue(recordAt(slot));
+        setSlot(slot, REMOVED, 0);
+        size--;
+        modCount++;
+        writeHeader();
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int slot = skipFree(0);
+
+            private int skipFree(int i) {
+                while (i < capacity && recordAt(i) <= EMPTY)
+                    i++;
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < capacity;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                int record = recordAt(slot);
+                var entry = new Entry<>(readKey(record), readValue(record));
+                slot = skipFree(slot + 1);
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<String, String> cursor() {
+        return new DictionaryCursor<>() {
+            private final int expectedModCount = modCount;
+            private int slot = -1;
+
+            @Override
+            public boolean advance() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                if (slot < capacity)
+                    slot++;
+                while (slot < capacity && recordAt(slot) <= EMPTY)
+                    slot++;
+                return slot < capacity;
+            }
+
+            // key and value are decoded from the record only when asked for
+            @Override
+            public String key() {
+                check();
+                return readKey(recordAt(slot));
+            }
+
+            @Override
+            public String value() {
+                check();
+                return readValue(recordAt(slot));
+            }
+
+            private void check() {
+                if (slot < 0 || slot >= capacity)
+                    throw new NoSuchElementException();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < capacity; i++) {
+            int record = recordAt(i);
+            if (record > EMPTY)
+                action.accept(readKey(record), readValue(record));
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Returns the slot of key, or (-(slot for inserting) - 1) if key is not contained.
+     */
+    private int findSlot(String key, int h) {
+        int mask = capacity - 1;
+        int free = -1;
+
+        // insert keeps half of the index empty, so the loop ends at an empty slot unless the file is damaged
+        for (int n = 0, i = h & mask; n < capacity; n++, i = (i + 1) & mask) {
+            int record = recordAt(i);
+            if (record == EMPTY)
+                return -(free >= 0 ? free : i) - 1;
+            if (record == REMOVED) {
+                if (free < 0)
+                    free = i;
+            } else if (buffer.getInt(slotPos(i) + 4) == h && keyEquals(record, key)) {
+                return i;
+            }
+        }
+        if (free >= 0)
+            return -free - 1;
+        throw new IllegalStateException("corrupt dictionary file: no empty slot in the index");
+    }
+
+    /**
+     * Compares the UTF-8 key of record with key, decoding one character at a time.
+     */
+    private boolean keyEquals(int record, String key) {
+        int len = buffer.getInt(record);
+        // every char takes one to three bytes
+        if (len < key.length() || len > 3 * key.length())
+            return false;
+
+        int p = record + RECORD_HEADER;
+        int pEnd = p + len;
+        int i = 0;
+        while (p < pEnd) {
+            int b = buffer.get(p++);
+            int c;
+            if (b >= 0) {
+                c = b;
+            } else if ((b & 0xE0) == 0xC0) {
+                c = ((b & 0x1F) << 6) | (buffer.get(p++) & 0x3F);
+            } else if ((b & 0xF0) == 0xE0) {
+                c = ((b & 0x0F) << 12) | ((buffer.get(p++) & 0x3F) << 6) | (buffer.get(p++) & 0x3F);
+            } else {
+                // four bytes encode a code point outside the BMP, which is a surrogate pair in the String
+                int cp = ((b & 0x07) << 18) | ((buffer.get(p++) & 0x3F) << 12)
+                        | ((buffer.get(p++) & 0x3F) << 6) | (buffer.get(p++) & 0x3F);
+                if (i + 1 >= key.length() || key.charAt(i++) != Character.highSurrogate(cp))
+                    return false;
+                c = Character.lowSurrogate(cp);
+            }
+            if (i >= key.length() || key.charAt(i++) != c)
+                return false;
+        }
+        return i == key.length();
+    }
+
+    private String readKey(int record) {
+        byte[] bytes = new byte[buffer.getInt(record)];
+        buffer.get(record + RECORD_HEADER, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readValue(int record) {
+        byte[] bytes = new byte[buffer.getInt(record + 8)];
+        buffer.get(valueStart(record), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int valueStart(int record) {
+        return record + RECORD_HEADER + buffer.getInt(record);
+    }
+
+    private int appendRecord(byte[] key, byte[] value) {
+        int record = allocate(RECORD_HEADER + key.length + value.length);
+        buffer.putInt(record, key.length);
+        buffer.putInt(record + 4, value.length);
+        buffer.putInt(record + 8, value.length);
+        buffer.put(record + RECORD_HEADER, key);
+        buffer.put(record + RECORD_HEADER + key.length, value);
+        return record;
+    }
+
+    /**
+     * Reserves len bytes at the end of the data and returns their offset.
+     */
+    private int allocate(int len) {
+        long newEnd = (long) end + len;
+        if (newEnd > Integer.MAX_VALUE)
+            throw new IllegalStateException("dictionary file is limited to 2 GB");
+        if (newEnd > buffer.capacity()) {
+            try {
+                map(Math.min(Math.max(newEnd, 2L * buffer.capacity()), Integer.MAX_VALUE));
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot grow dictionary file", e);
+            }
+        }
+
+        int start = end;
+        end = (int) newEnd;
+        writeHeader();
+        return start;
+    }
+
+    /**
+     * Writes a new index behind the data and drops the removed slots.
+     * The index grows only if more than a quarter of it is used by live entries.
+     */
+    private void resizeIndex() {
+        int oldOffset = indexOffset;
+        int oldCapacity = capacity;
+        int newCapacity = size * 4 > capacity ? capacity * 2 : capacity;
+
+        int newOffset = allocate(newCapacity * SLOT_SIZE);
+        for (int i = 0; i < newCapacity; i++)
+            buffer.putLong(newOffset + i * SLOT_SIZE, 0L);
+
+        indexOffset = newOffset;
+        capacity = newCapacity;
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            int record = buffer.getInt(oldOffset + j * SLOT_SIZE);
+            if (record > EMPTY) {
+                int h = buffer.getInt(oldOffset + j * SLOT_SIZE + 4);
+                int i = h & mask;
+                while (recordAt(i) != EMPTY)
+                    i = (i + 1) & mask;
+                setSlot(i, record, h);
+            }
+        }
+        used = size;
+        writeHeader();
+    }
+
+    private int slotPos(int slot) {
+        return indexOffset + slot * SLOT_SIZE;
+    }
+
+    private int recordAt(int slot) {
+        return buffer.getInt(slotPos(slot));
+    }
+
+    private void setSlot(int slot, int record, int h) {
+        buffer.putInt(slotPos(slot) + 4, h);
+        buffer.putInt(slotPos(slot), record);
+    }
+
+    private void writeHeader() {
+        buffer.putInt(INDEX_POS, indexOffset);
+        buffer.putInt(CAPACITY_POS, capacity);
+        buffer.putInt(SIZE_POS, size);
+        buffer.putInt(USED_POS, used);
+        buffer.putInt(END_POS, end);
+    }
+
+    private void map(long fileSize) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    }
+
+    private static int hash(String key) {
+        // String.hashCode is specified, so the hashes in the file stay valid between runs
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,43 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Iterator;
+
+/**
+ * Dictionary whose entries are ordered by their keys and that supports order statistics.
+ * @param <K> the type of keys maintained by this map.
+ * @param <V> the type of mapped values.
+ */
+public interface OrderedDictionary<K extends Comparable<K>, V> extends Dictionary<K, V> {
+	/**
+	 * Returns the entry with the k-th smallest key, counting from 0.
+	 * @param k rank of the entry, 0 &lt;= k &lt; size().
+	 * @return the entry with the k-th smallest key.
+	 * @throws IndexOutOfBoundsException if k is not a valid rank.
+	 */
+	Entry<K, V> select(int k);
+
+	/**
+	 * Returns the number of keys that are smaller than key.
+	 * key itself does not need to be contained.
+	 * @param key the key to be ranked.
+	 * @return the number of keys smaller than key.
+	 */
+	int rank(K key);
+
+	/**
+	 * Returns the number of keys k with from &lt;= k &lt;= to.
+	 * @param from lower bound (inclusive).
+	 * @param to upper bound (inclusive).
+	 * @return the number of keys in the range, 0 if from &gt; to.
+	 */
+	int countRange(K from, K to);
+
+	/**
+	 * Returns an iterator over the entries in ascending key order,
+	 * starting with the entry of rank k.
+	 * @param k rank of the first entry, 0 &lt;= k &lt;= size().
+	 * @return an Iterator over the entries from rank k on.
+	 * @throws IndexOutOfBoundsException if k is not a valid rank.
+	 */
+	Iterator<Entry<K, V>> iteratorFrom(int k);
+}
@@ -0,0 +1,470 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface as persistent AVL tree.
+ * <p>
+ * Nodes are never changed once they are built. insert and remove copy only the nodes on the path
+ * from the root to the changed node (O(log n) nodes) and share all other subtrees with the old version.
+ * The new root is published with a compare-and-set on an AtomicReference, so every version is complete
+ * and balanced when readers see it:
+ * <ul>
+ *     <li>readers take the current root once and never block or retry,</li>
+ *     <li>iterators, cursors and spliterators walk the version they started with
+ *     and never throw ConcurrentModificationException,</li>
+ *     <li>{@link #snapshot()} returns a read-only view of the current version in O(1).</li>
+ * </ul>
+ * Writers are lock-free: if two writers change the dictionary at the same time, the one that loses the
+ * compare-and-set builds its path again on the new root. A single writer (e.g. a loader thread) never retries.
+ * <p>
+ * Like in BinaryTreeDictionary, every node stores the size of its subtree for the order statistics.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class PersistentTreeDictionary<K extends Comparable<K>, V> implements OrderedDictionary<K, V> {
+
+    private final AtomicReference<Node<K, V>> root;
+    private final boolean readOnly;
+
+    public PersistentTreeDictionary() {
+        this(null, false);
+    }
+
+    private PersistentTreeDictionary(Node<K, V> root, boolean readOnly) {
+        this.root = new AtomicReference<>(root);
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Returns a read-only view of the current version in O(1).
+     * Later changes of this dictionary are not visible in the snapshot;
+     * insert and remove of the snapshot throw UnsupportedOperationException.
+     * @return a snapshot of this dictionary.
+     */
+    public PersistentTreeDictionary<K, V> snapshot() {
+        return new PersistentTreeDictionary<>(root.get(), true);
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        checkWritable();
+        Change<V> change = new Change<>();
+        while (true) {
+            Node<K, V> old = root.get();
+            change.oldValue = null;
+            if (root.compareAndSet(old, insertR(key, value, old, change)))
+                return change.oldValue;
+        }
+    }
+
+    private Node<K, V> insertR(K key, V value, Node<K, V> p, Change<V> change) {
+        if (p == null)
+            return new Node<>(key, value, null, null);
+
+        int c = key.compareTo(p.key);
+        if (c < 0)
+            return balance(p.key, p.value, insertR(key, value, p.left, change), p.right);
+        else if (c > 0)
+            return balance(p.key, p.value, p.left, insertR(key, value, p.right, change));
+        else {
+            // key gefunden, neuer Knoten mit neuem Wert
+            change.oldValue = p.value;
+            return new Node<>(p.key, value, p.left, p.right);
+        }
+    }
+
+    /**
+     * Inserts all entries into one new version, which is published with a single compare-and-set.
+     * Readers see either none or all of the entries.
+     */
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        checkWritable();
+        // a retry needs the entries again, but entries may be an Iterable that can be traversed only once
+        List<Entry<K, V>> all = new ArrayList<>();
+        for (Entry<K, V> e : entries)
+            all.add(e);
+
+        Change<V> change = new Change<>();
+        while (true) {
+            Node<K, V> old = root.get();
+            Node<K, V> p = old;
+            for (Entry<K, V> e : all)
+                p = insertR(e.getKey(), e.getValue(), p, change);
+            if (root.compareAndSet(old, p))
+                return;
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        checkWritable();
+        Change<V> change = new Change<>();
+        while (true) {
+            Node<K, V> old = root.get();
+            change.oldValue = null;
+            Node<K, V> p = removeR(key, old, change);
+            // key not contained, nothing to publish
+            if (p == old || root.compareAndSet(old, p))
+                return change.oldValue;
+        }
+    }
+
+    private Node<K, V> removeR(K key, Node<K, V> p, Change<V> change) {
+        if (p == null)
+            return null;
+
+        int c = key.compareTo(p.key);
+        if (c < 0) {
+            Node<K, V> left = removeR(key, p.left, change);
+            return (left == p.left) ? p : balance(p.key, p.value, left, p.right);
+        } else if (c > 0) {
+            Node<K, V> right = removeR(key, p.right, change);
+            return (right == p.right) ? p : balance(p.key, p.value, p.left, right);
+        } else {
+            // gefunden
+            change.oldValue = p.value;
+            if (p.left == null) return p.right;
+            if (p.right == null) return p.left;
+            Node<K, V> min = getMin(p.right);
+            return balance(min.key, min.value, p.left, removeMinR(p.right));
+        }
+    }
+
+    private Node<K, V> removeMinR(Node<K, V> p) {
+        if (p.left == null)
+            return p.right;
+        return balance(p.key, p.value, removeMinR(p.left), p.right);
+    }
+
+    private Node<K, V> getMin(Node<K, V> p) {
+        while (p.left != null)
+            p = p.left;
+        return p;
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("snapshot is read-only");
+    }
+
+    @Override
+    public V search(K key) {
+        Node<K, V> p = root.get();
+        while (p != null) {
+            int c = key.compareTo(p.key);
+            if (c < 0) p = p.left;
+            else if (c > 0) p = p.right;
+            else return p.value;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return getSize(root.get());
+    }
+
+    @Override
+    public Entry<K, V> select(int k) {
+        Node<K, V> p = root.get();
+        if (k < 0 || k >= getSize(p)) throw new IndexOutOfBoundsException(k);
+        while (true) {
+            int leftSize = getSize(p.left);
+            if (k < leftSize) {
+                p = p.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                p = p.right;
+            } else {
+                return p.asEntry();
+            }
+        }
+    }
+
+    @Override
+    public int rank(K key) {
+        return rank(root.get(), key, false);
+    }
+
+    @Override
+    public int countRange(K from, K to) {
+        if (from.compareTo(to) > 0) return 0;
+        // both ranks on the same version
+        Node<K, V> p = root.get();
+        return rank(p, to, true) - rank(p, from, false);
+    }
+
+    /**
+     * Returns the number of keys below p smaller than key, or smaller or equal if inclusive is true.
+     */
+    private int rank(Node<K, V> p, K key, boolean inclusive) {
+        int r = 0;
+        while (p != null) {
+            int c = key.compareTo(p.key);
+            if (c < 0) {
+                p = p.left;
+            } else if (c > 0) {
+                r += getSize(p.left) + 1;
+                p = p.right;
+            } else {
+                return r + getSize(p.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return r;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return iteratorFrom(0);
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iteratorFrom(int k) {
+        Node<K, V> p = root.get();
+        if (k < 0 || k > getSize(p)) throw new IndexOutOfBoundsException(k);
+        Path<K, V> path = new Path<>(p, k);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return path.next().asEntry();
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        Path<K, V> path = new Path<>(root.get(), 0);
+        return new DictionaryCursor<>() {
+            private Node<K, V> p = null;
+
+            @Override
+            public boolean advance() {
+                p = path.isEmpty() ? null : path.next();
+                return p != null;
+            }
+
+            @Override
+            public K key() {
+                if (p == null) throw new NoSuchElementException();
+                return p.key;
+            }
+
+            @Override
+            public V value() {
+                if (p == null) throw new NoSuchElementException();
+                return p.value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachR(root.get(), action);
+    }
+
+    private void forEachR(Node<K, V> p, BiConsumer<? super K, ? super V> action) {
+        if (p == null) return;
+        forEachR(p.left, action);
+        action.accept(p.key, p.value);
+        forEachR(p.right, action);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        Node<K, V> p = root.get();
+        return new RankSpliterator<>(p, 0, getSize(p));
+    }
+
+    /**
+     * Stack of the nodes on the path from the root to the next node in inorder,
+     * holding only the nodes whose left subtree has already been visited.
+     * The tree does not change, so no parent references are needed.
+     */
+    private static class Path<K, V> {
+        private final Node<K, V>[] stack;
+        private int top = 0;
+
+        /**
+         * Positions the path at the node with rank k below root, or at the end if k is the size.
+         */
+        @SuppressWarnings("unchecked")
+        Path(Node<K, V> root, int k) {
+            // an AVL tree of height h has paths of at most h + 1 nodes
+            stack = (Node<K, V>[]) new Node[getHeight(root) + 1];
+            Node<K, V> p = root;
+            while (p != null) {
+                int leftSize = getSize(p.left);
+                if (k < leftSize) {
+                    stack[top++] = p;
+                    p = p.left;
+                } else if (k > leftSize) {
+                    k -= leftSize + 1;
+                    p = p.right;
+                } else {
+                    stack[top++] = p;
+                    break;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return top == 0;
+        }
+
+        Node<K, V> next() {
+            Node<K, V> p = stack[--top];
+            for (Node<K, V> q = p.right; q != null; q = q.left)
+                stack[top++] = q;
+            return p;
+        }
+    }
+
+    /**
+     * Spliterator over the entries with rank from index to fence of one version.
+     * Splitting halves the rank range like the RankSpliterator of BinaryTreeDictionary;
+     * the path to the first entry is built when the traversal starts.
+     */
+    private static class RankSpliterator<K extends Comparable<K>, V> implements Spliterator<Entry<K, V>> {
+        private final Node<K, V> root;
+        private int index;
+        private final int fence;
+        private Path<K, V> path = null;
+
+        RankSpliterator(Node<K, V> root, int index, int fence) {
+            this.root = root;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index || path != null) return null;
+            var prefix = new RankSpliterator<>(root, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (index >= fence) return false;
+            if (path == null) path = new Path<>(root, index);
+            index++;
+            action.accept(path.next().asEntry());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            if (index >= fence) return;
+            if (path == null) path = new Path<>(root, index);
+            for (; index < fence; index++)
+                action.accept(path.next().asEntry());
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return Comparator.comparing(Entry::getKey);
+        }
+    }
+
+    private static int getHeight(Node<?, ?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    private static int getSize(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Builds a new node from key, value and the subtrees left and right,
+     * whose heights may differ by at most 2, and rotates if necessary.
+     * Only new nodes are built, the subtrees are shared.
+     */
+    private Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int hl = getHeight(left);
+        int hr = getHeight(right);
+        if (hl - hr == 2) {
+            if (getHeight(left.left) >= getHeight(left.right)) {
+                // rotateRight
+                return new Node<>(left.key, left.value, left.left,
+                        new Node<>(key, value, left.right, right));
+            } else {
+                // rotateLeftRight
+                Node<K, V> lr = left.right;
+                return new Node<>(lr.key, lr.value,
+                        new Node<>(left.key, left.value, left.left, lr.left),
+                        new Node<>(key, value, lr.right, right));
+            }
+        } else if (hr - hl == 2) {
+            if (getHeight(right.right) >= getHeight(right.left)) {
+                // rotateLeft
+                return new Node<>(right.key, right.value,
+                        new Node<>(key, value, left, right.left), right.right);
+            } else {
+                // rotateRightLeft
+                Node<K, V> rl = right.left;
+                return new Node<>(rl.key, rl.value,
+                        new Node<>(key, value, left, rl.left),
+                        new Node<>(right.key, right.value, rl.right, right.right));
+            }
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    /**
+     * Old value of an insert or remove, written by the recursion.
+     * One per call, as several threads may write at the same time.
+     */
+    private static class Change<V> {
+        V oldValue;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int height;
+        final int size;
+        final Node<K, V> left;
+        final Node<K, V> right;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(getHeight(left), getHeight(right)) + 1;
+            this.size = getSize(left) + getSize(right) + 1;
+        }
+
+        Entry<K, V> asEntry() {
+            return new Entry<>(key, value);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe wrapper around an ordered dictionary that is read far more often than it is changed.
+ * <p>
+ * Unlike SynchronizedDictionary, readers do not exclude each other: they share the read lock of a StampedLock.
+ * For a SortedArrayDictionary a read first runs without any lock as an optimistic read
+ * and is only accepted if no write has started in the meantime:
+ * <ul>
+ *     <li>If a writer was active, the reader may have seen a half-done change, e.g. entries being shifted
+ *     in the array. The result is then thrown away and the read is repeated under the read lock.</li>
+ *     <li>A half-done change may also make the read fail, e.g. with an ArrayIndexOutOfBoundsException
+ *     or a NullPointerException. Such a RuntimeException is ignored in the same way.
+ *     It is only thrown if the read fails again under the read lock.</li>
+ * </ul>
+ * This needs a read that ends whatever it sees. The binary search over an array does, but a search in
+ * the AVL tree of BinaryTreeDictionary may meet a half-done rotation as a cycle and never end,
+ * so all other dictionaries are always read under the read lock. Neither is a read optimistic
+ * while the SortedArrayDictionary records metrics, which a discarded read would count twice.
+ * <p>
+ * Writers take the write lock, so they are serialized and wait for readers under the read lock.
+ * <p>
+ * The wrapped dictionary must not change itself in read operations (like HashDictionary, whose search
+ * moves entries during a resize), which is why only OrderedDictionary implementations are accepted.
+ * All access has to go through the wrapper.
+ * <p>
+ * The iterator, cursor and spliterator copy the entries under the read lock when they are created,
+ * so they never throw ConcurrentModificationException, but cost O(n) time and space.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class ReadMostlyDictionary<K extends Comparable<K>, V> implements OrderedDictionary<K, V> {
+    private final OrderedDictionary<K, V> dict;
+    // dict, if it can be read optimistically, otherwise null
+    private final SortedArrayDictionary<K, V> sorted;
+    private final StampedLock lock = new StampedLock();
+
+    public ReadMostlyDictionary(OrderedDictionary<K, V> dict) {
+        this.dict = dict;
+        this.sorted = dict instanceof SortedArrayDictionary<K, V> s ? s : null;
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            return dict.insert(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        long stamp = lock.writeLock();
+        try {
+            return dict.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        long stamp = lock.writeLock();
+        try {
+            dict.insertAll(entries);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V search(K key) {
+        return read(() -> dict.search(key));
+    }
+
+    @Override
+    public void searchAll(K[] keys, V[] out) {
+        if (out.length < keys.length)
+            throw new IllegalArgumentException("out is shorter than keys");
+        // out may have been written by a failed optimistic read, it is overwritten completely under the read lock
+        read(() -> {
+            dict.searchAll(keys, out);
+            return null;
+        });
+    }
+
+    @Override
+    public int size() {
+        return readInt(dict::size);
+    }
+
+    @Override
+    public Entry<K, V> select(int k) {
+        return read(() -> dict.select(k));
+    }
+
+    @Override
+    public int rank(K key) {
+        return readInt(() -> dict.rank(key));
+    }
+
+    @Override
+    public int countRange(K from, K to) {
+        return readInt(() -> dict.countRange(from, to));
+    }
+
+    /**
+     * Returns the stamp for an optimistic read, or 0 if dict has to be read under the read lock.
+     */
+    private long tryOptimisticRead() {
+        return sorted != null && sorted.metrics() == null ? lock.tryOptimisticRead() : 0;
+    }
+
+    /**
+     * Runs op as optimistic read if possible and, if a writer got in the way, again under the read lock.
+     */
+    private <R> R read(Supplier<R> op) {
+        long stamp = tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = op.get();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (RuntimeException e) {
+                // inconsistent state seen during a write, retried below
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return op.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Same as read, without boxing the result.
+     */
+    private int readInt(IntSupplier op) {
+        long stamp = tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = op.getAsInt();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (RuntimeException e) {
+                // inconsistent state seen during a write, retried below
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return op.getAsInt();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        // the action may take long, so it gets a copy instead of blocking writers
+        for (Entry<K, V> e : copy(0))
+            action.accept(e.getKey(), e.getValue());
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return copy(0).iterator();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iteratorFrom(int k) {
+        return copy(k).iterator();
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return copy(0).spliterator();
+    }
+
+    /**
+     * Copies the entries from rank k on under the read lock.
+     * The entries are copied as well, so setValue on them does not bypass the lock.
+     */
+    private List<Entry<K, V>> copy(int k) {
+        long stamp = lock.readLock();
+        try {
+            List<Entry<K, V>> entries = new ArrayList<>(Math.max(0, dict.size() - k));
+            Iterator<Entry<K, V>> it = dict.iteratorFrom(k);
+            while (it.hasNext()) {
+                Entry<K, V> e = it.next();
+                entries.add(new Entry<>(e.getKey(), e.getValue()));
+            }
+            return entries;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package de.htwg.alda.dictionary;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of the de.htwg.alda.dictionary.Dictionary interface as open addressing hash table
+ * with Robin Hood probing.
+ * <p>
+ * Keys, values and hash codes are kept in parallel arrays, so an insert allocates nothing
+ * and a lookup scans adjacent slots instead of following list nodes.
+ * On a collision the entry that is further away from its home slot keeps the slot,
+ * which keeps probe sequences short and lets a search stop early.
+ * Removing uses backward shift deletion, so no tombstones are needed.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class RobinHoodHashDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+    private static final int DEF_CAPACITY = 16;
+    private static final int EMPTY = 0;
+    // maximal load is LOAD_NUM / LOAD_DEN
+    private static final int LOAD_NUM = 7;
+    private static final int LOAD_DEN = 8;
+
+    private K[] keys;
+    private V[] values;
+    private int[] hashes;
+    private int mask;
+    private int size;
+    private int modCount = 0;
+
+    public RobinHoodHashDictionary() {
+        this(DEF_CAPACITY);
+    }
+
+    public RobinHoodHashDictionary(int capacity) {
+        allocate(tableSizeFor(capacity));
+        this.size = 0;
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        int h = hash(key);
+        int i = indexOf(key, h);
+
+        // key is already present
+        if (i >= 0) {
+            V old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        // increase size when too much load
+        if ((size + 1) * LOAD_DEN > hashes.length * LOAD_NUM) {
+            resize(hashes.length * 2);
+        }
+
+        place(h, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V search(K key) {
+        int i = indexOf(key, hash(key));
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public V remove(K key) {
+        int i = indexOf(key, hash(key));
+        if (i < 0)
+            return null;
+
+        V old = values[i];
+
+        // shift the following entries one slot back until one is empty or in its home slot
+        int next = (i + 1) & mask;
+        while (hashes[next] != EMPTY && distance(hashes[next], next) > 0) {
+            hashes[i] = hashes[next];
+            keys[i] = keys[next];
+            values[i] = values[next];
+            i = next;
+            next = (next + 1) & mask;
+        }
+
+        hashes[i] = EMPTY;
+        keys[i] = null;
+        values[i] = null;
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int index = skipEmpty(0);
+
+            private int skipEmpty(int i) {
+                while (i < hashes.length && hashes[i] == EMPTY)
+                    i++;
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < hashes.length;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                var entry = new Entry<>(keys[index], values[index]);
+                index = skipEmpty(index + 1);
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        return new DictionaryCursor<>() {
+            private final int expectedModCount = modCount;
+            private int index = -1;
+
+            @Override
+            public boolean advance() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                if (index < hashes.length)
+                    index++;
+                while (index < hashes.length && hashes[index] == EMPTY)
+                    index++;
+                return index < hashes.length;
+            }
+
+            @Override
+            public K key() {
+                check();
+                return keys[index];
+            }
+
+            @Override
+            public V value() {
+                check();
+                return values[index];
+            }
+
+            private void check() {
+                if (index < 0 || index >= hashes.length)
+                    throw new NoSuchElementException();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != EMPTY)
+                action.accept(keys[i], values[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns the slot of key or -1 if key is not contained.
+     */
+    private int indexOf(K key, int h) {
+        int i = h & mask;
+        for (int dist = 0; ; dist++) {
+            int sh = hashes[i];
+            // an empty slot or a richer entry ends the probe sequence
+            if (sh == EMPTY || distance(sh, i) < dist)
+                return -1;
+            if (sh == h && keys[i].equals(key))
+                return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Puts a key that is not contained yet into the table, there must be a free slot.
+     */
+    private void place(int h, K key, V value) {
+        int i = h & mask;
+        for (int dist = 0; ; dist++) {
+            int sh = hashes[i];
+            if (sh == EMPTY) {
+                hashes[i] = h;
+                keys[i] = key;
+                values[i] = value;
+                return;
+            }
+
+            // the resident is closer to its home slot, so it has to make room
+            int sd = distance(sh, i);
+            if (sd < dist) {
+                K sk = keys[i];
+                V sv = values[i];
+                hashes[i] = h;
+                keys[i] = key;
+                values[i] = value;
+                h = sh;
+                key = sk;
+                value = sv;
+                dist = sd;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private int distance(int h, int slot) {
+        return (slot - (h & mask)) & mask;
+    }
+
+    private void resize(int capacity) {
+        int[] oldHashes = hashes;
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+
+        allocate(capacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != EMPTY)
+                place(oldHashes[i], oldKeys[i], oldValues[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        this.hashes = new int[capacity];
+        this.keys = (K[]) new Comparable[capacity];
+        this.values = (V[]) new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Math.max(capacity, 2);
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static int hash(Object key) {
+        // spread the bits of hashCode, since only the lower bits select the slot
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h == EMPTY ? 1 : h;
+    }
+}
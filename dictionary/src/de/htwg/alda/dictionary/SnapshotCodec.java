@@ -0,0 +1,59 @@
+package de.htwg.alda.dictionary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys or values to bytes and back for the binary snapshots of the dictionaries
+ * (see e.g. {@link HashDictionary#save}).
+ *
+ * @param <T> the type of the converted objects.
+ */
+public interface SnapshotCodec<T> {
+    /**
+     * Strings as UTF-8.
+     */
+    SnapshotCodec<String> STRING = new SnapshotCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] data, int offset, int length) {
+            return new String(data, offset, length, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Integers as 4 bytes, big-endian.
+     */
+    SnapshotCodec<Integer> INTEGER = new SnapshotCodec<>() {
+        @Override
+        public byte[] encode(Integer value) {
+            int v = value;
+            return new byte[]{(byte) (v >>> 24), (byte) (v >>> 16), (byte) (v >>> 8), (byte) v};
+        }
+
+        @Override
+        public Integer decode(byte[] data, int offset, int length) {
+            return (data[offset] & 0xff) << 24 | (data[offset + 1] & 0xff) << 16
+                    | (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+        }
+    };
+
+    /**
+     * Returns the bytes of value.
+     * @param value the object to be converted, not null.
+     * @return the bytes of value.
+     */
+    byte[] encode(T value);
+
+    /**
+     * Builds the object from the bytes data[offset .. offset + length - 1], as returned by encode.
+     * @param data array holding the bytes.
+     * @param offset index of the first byte.
+     * @param length number of bytes.
+     * @return the decoded object.
+     */
+    T decode(byte[] data, int offset, int length);
+}
@@ -0,0 +1,233 @@
+package de.htwg.alda.dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * File format of the binary dictionary snapshots.
+ * <p>
+ * A snapshot is a header of HEADER_SIZE bytes followed by the payload:
+ * <pre>
+ * int  magic "DSNP"
+ * int  version
+ * int  kind (SORTED or HASH)
+ * int  number of entries
+ * int  table length (HASH only, otherwise 0)
+ * long payload length
+ * int  CRC32C of the header fields above and the payload
+ * </pre>
+ * The payload is a sequence of unsigned varints (7 bits per byte, low bits first) and byte strings,
+ * each prefixed by its length as varint. Its layout depends on the kind:
+ * <ul>
+ *     <li>SORTED: key and value of every entry in ascending key order.
+ *     SortedArrayDictionary and BinaryTreeDictionary both write and read this kind.</li>
+ *     <li>HASH: for every bucket the number of its entries followed by their keys and values.</li>
+ * </ul>
+ * A snapshot is written to a temporary file first and then moved over the target,
+ * so a crash never leaves a half-written snapshot behind.
+ */
+final class SnapshotFile {
+    static final int SORTED = 1;
+    static final int HASH = 2;
+
+    private static final int MAGIC = 0x44534E50; // "DSNP"
+    // version 1 checked only the payload
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int CRC_POS = 28;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Returns the kind of the snapshot in file, after checking magic and version.
+     */
+    static int kindOf(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (var channel = Files.newByteChannel(file)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0)
+                    break;
+            }
+        }
+        header.flip();
+        checkHeader(header, file);
+        return header.getInt(8);
+    }
+
+    private static void checkHeader(ByteBuffer header, Path file) throws IOException {
+        if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC)
+            throw new IOException("not a dictionary snapshot: " + file);
+        if (header.getInt(4) != VERSION)
+            throw new IOException("unsupported snapshot version " + header.getInt(4) + ": " + file);
+    }
+
+    /**
+     * Returns the CRC32C of everything in data except the checksum itself.
+     */
+    private static int checksum(byte[] data, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, CRC_POS);
+        crc.update(data, HEADER_SIZE, length - HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Collects the payload of a snapshot in a growing byte array.
+     */
+    static class Writer {
+        private final int kind;
+        private final int count;
+        private final int tableLength;
+        private byte[] data = new byte[1024];
+        private int length = HEADER_SIZE;
+
+        Writer(int kind, int count, int tableLength) {
+            this.kind = kind;
+            this.count = count;
+            this.tableLength = tableLength;
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7f) != 0) {
+                data[length++] = (byte) (v | 0x80);
+                v >>>= 7;
+            }
+            data[length++] = (byte) v;
+        }
+
+        <T> void write(T value, SnapshotCodec<T> codec) {
+            byte[] bytes = codec.encode(value);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void ensure(int n) {
+            if (length + n > data.length)
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + n));
+        }
+
+        /**
+         * Writes header and payload to file.
+         */
+        void writeTo(Path file) throws IOException {
+            ByteBuffer.wrap(data, 0, HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(kind)
+                    .putInt(count)
+                    .putInt(tableLength)
+                    .putLong(length - HEADER_SIZE)
+                    .putInt(CRC_POS, checksum(data, length));
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var channel = Files.newByteChannel(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reads a snapshot file into memory and checks header and checksum.
+     * <p>
+     * A loader decodes the payload with readVarInt and read and then calls finish. As the checksum
+     * only finds accidental damage, the decoding must not trust the payload either: the RuntimeExceptions
+     * of reading past its end or of a codec should be turned into an IOException with corrupt.
+     */
+    static class Reader {
+        private final Path file;
+        private final byte[] data;
+        private final int count;
+        private final int tableLength;
+        private int pos = HEADER_SIZE;
+        // last key read by readAscending
+        private Object previousKey = null;
+
+        Reader(Path file, int kind) throws IOException {
+            this.file = file;
+            data = Files.readAllBytes(file);
+            ByteBuffer header = ByteBuffer.wrap(data);
+            checkHeader(header, file);
+            if (header.getInt(8) != kind)
+                throw new IOException("snapshot of another kind of dictionary: " + file);
+            if (header.getLong(20) != data.length - HEADER_SIZE)
+                throw new IOException("truncated snapshot: " + file);
+            if (header.getInt(CRC_POS) != checksum(data, data.length))
+                throw new IOException("checksum mismatch: " + file);
+
+            count = header.getInt(12);
+            tableLength = header.getInt(16);
+            // every entry takes at least the two length bytes of key and value
+            if (count < 0 || count > (data.length - HEADER_SIZE) / 2 || tableLength < 0)
+                throw corrupt(null);
+        }
+
+        int count() {
+            return count;
+        }
+
+        int tableLength() {
+            return tableLength;
+        }
+
+        int readVarInt() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                v |= (b & 0x7f) << shift;
+                if (b >= 0)
+                    return v;
+            }
+        }
+
+        <T> T read(SnapshotCodec<T> codec) {
+            int length = readVarInt();
+            Objects.checkFromIndexSize(pos, length, data.length);
+            T value = codec.decode(data, pos, length);
+            pos += length;
+            return value;
+        }
+
+        /**
+         * Reads a key of a SORTED snapshot and checks that it is greater than the one read before.
+         * @throws IllegalArgumentException if the keys are not strictly ascending.
+         */
+        @SuppressWarnings("unchecked")
+        <K extends Comparable<K>> K readAscending(SnapshotCodec<K> codec) {
+            K key = read(codec);
+            if (previousKey != null && ((K) previousKey).compareTo(key) >= 0)
+                throw new IllegalArgumentException("keys are not strictly ascending: " + key);
+            previousKey = key;
+            return key;
+        }
+
+        /**
+         * Checks that the whole payload has been read.
+         */
+        void finish() throws IOException {
+            if (pos != data.length)
+                throw corrupt(null);
+        }
+
+        /**
+         * Returns the exception for a payload that does not match its header.
+         */
+        IOException corrupt(Throwable cause) {
+            return new IOException("corrupt snapshot: " + file, cause);
+        }
+    }
+}
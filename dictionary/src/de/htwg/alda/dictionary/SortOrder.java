@@ -0,0 +1,67 @@
+package de.htwg.alda.dictionary;
+
+/**
+ * Sort order of the probe keys of a batch operation.
+ * <p>
+ * The keys themselves are not moved, only an index array is sorted,
+ * so the results can still be written to the positions the caller expects.
+ */
+final class SortOrder {
+    // ranges up to this length are sorted by insertion sort
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private SortOrder() {
+    }
+
+    /**
+     * Returns the indices of keys in ascending key order.
+     * Equal keys keep their relative order (the sort is stable).
+     * Already sorted keys are detected in O(n).
+     * @param keys keys to be sorted, they are not changed.
+     * @return a permutation p of 0 .. keys.length - 1 with keys[p[0]] &lt;= keys[p[1]] &lt;= ...
+     */
+    static <K extends Comparable<K>> int[] of(K[] keys) {
+        int n = keys.length;
+        int[] order = new int[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            if (sorted && i > 0 && keys[i - 1].compareTo(keys[i]) > 0)
+                sorted = false;
+        }
+        if (!sorted)
+            mergeSort(keys, order, new int[n], 0, n);
+        return order;
+    }
+
+    private static <K extends Comparable<K>> void mergeSort(K[] keys, int[] a, int[] tmp, int from, int to) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int x = a[i];
+                int j = i - 1;
+                while (j >= from && keys[a[j]].compareTo(keys[x]) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = x;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(keys, a, tmp, from, mid);
+        mergeSort(keys, a, tmp, mid, to);
+        // both halves are in order already
+        if (keys[a[mid - 1]].compareTo(keys[a[mid]]) <= 0)
+            return;
+
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to)
+            a[k++] = keys[tmp[j]].compareTo(keys[tmp[i]]) < 0 ? tmp[j++] : tmp[i++];
+        while (i < mid)
+            a[k++] = tmp[i++];
+        while (j < to)
+            a[k++] = tmp[j++];
+    }
+}
@@ -1,14 +1,25 @@
 package de.htwg.alda.dictionary;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictionary<K, V> {
+public class SortedArrayDictionary<K extends Comparable<K>, V> implements OrderedDictionary<K, V>, Instrumented {
     private static final int INITIAL_CAP = 16;
+    // from this many entries on insertAll sorts in parallel
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
 
     private int size;
     private Entry<K, V>[] data;
     private int modCount = 0;
+    // keys in Eytzinger order while frozen (index 1 to size), otherwise null
+    private K[] eytzKeys;
+    // position in data of every key in eytzKeys
+    private int[] eytzIndex;
+    // null while metrics are disabled
+    private DictionaryMetrics metrics = null;
 
     @SuppressWarnings("unchecked")
     public SortedArrayDictionary() {
@@ -19,6 +30,7 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
 
     @Override
     public V insert(K key, V value) {
+        if (metrics != null) metrics.recordInsert();
         int i = searchIndex(key);
 
         // has entry
@@ -26,14 +38,18 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
             return data[i].setValue(value);
         }
 
+        thaw();
         if (data.length == size) {
+            long start = (metrics != null) ? System.nanoTime() : 0;
             data = Arrays.copyOf(data, size * 2);
+            if (metrics != null) metrics.recordResize(System.nanoTime() - start);
         }
 
         int j;
         for (j = size - 1; j >= 0 && key.compareTo(data[j].getKey()) < 0; j--) {
             data[j + 1] = data[j];
         }
+        if (metrics != null) metrics.recordShifts(size - 1 - j);
 
         data[j+1] = new Entry<>(key, value);
         size++;
@@ -41,7 +57,116 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
         return null;
     }
 
+    /**
+     * Inserts all entries at once.
+     * The entries are appended unsorted, then the whole array is sorted once and duplicate keys are dropped,
+     * which costs O(n log n) instead of O(n) per single insert.
+     * If a key occurs more than once, the value inserted last wins, just like for a sequence of inserts.
+     * @param entries entries to be inserted; they are copied, not shared.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        Entry<K, V>[] all = Arrays.copyOf(data, Math.max(data.length, INITIAL_CAP));
+        int n = size;
+        for (var e : entries) {
+            if (n == all.length)
+                all = Arrays.copyOf(all, n * 2);
+            all[n++] = new Entry<>(e.getKey(), e.getValue());
+        }
+        if (n == size)
+            return;
+
+        // both sorts are stable, so equal keys keep their insertion order
+        Comparator<Entry<K, V>> byKey = (a, b) -> a.getKey().compareTo(b.getKey());
+        if (n >= PARALLEL_SORT_THRESHOLD)
+            Arrays.parallelSort(all, 0, n, byKey);
+        else
+            Arrays.sort(all, 0, n, byKey);
+
+        // keep the last entry of every run of equal keys
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (j > 0 && all[j - 1].getKey().compareTo(all[i].getKey()) == 0)
+                all[j - 1] = all[i];
+            else
+                all[j++] = all[i];
+        }
+        Arrays.fill(all, j, n, null);
+
+        thaw();
+        data = all;
+        if (metrics != null) metrics.recordInserts(n - size);
+        size = j;
+        this.modCount++;
+    }
+
+    /**
+     * Switches to a read-optimized layout for a dictionary that has finished loading.
+     * <p>
+     * The keys are copied into a separate array in Eytzinger (breadth-first) order:
+     * the children of slot k are the slots 2k and 2k+1.
+     * A search then descends through this array with one compareTo per level and without any
+     * data dependent branch, and the upper levels of the implicit tree share a few cache lines.
+     * Only the value of the found key is read from the entry array.
+     * <p>
+     * Inserting a new key or removing a key switches back to the normal layout;
+     * replacing the value of an existing key keeps the dictionary frozen.
+     */
+    @SuppressWarnings("unchecked")
+    public void freeze() {
+        eytzKeys = (K[]) new Comparable[size + 1];
+        eytzIndex = new int[size + 1];
+        buildEytzinger(0, 1);
+    }
+
+    /**
+     * Returns true if the dictionary uses the read-optimized layout of {@link #freeze()}.
+     * @return true if the dictionary is frozen.
+     */
+    public boolean isFrozen() {
+        return eytzKeys != null;
+    }
+
+    private void thaw() {
+        eytzKeys = null;
+        eytzIndex = null;
+    }
+
+    /**
+     * Fills the subtree rooted at slot k in order with the entries from position i on.
+     * Returns the position of the next entry.
+     */
+    private int buildEytzinger(int i, int k) {
+        if (k <= size) {
+            i = buildEytzinger(i, 2 * k);
+            eytzKeys[k] = data[i].getKey();
+            eytzIndex[k] = i++;
+            i = buildEytzinger(i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    private int searchEytzinger(K key) {
+        K[] keys = eytzKeys;
+        int n = keys.length - 1;
+
+        // go right if the key in slot k is smaller, so k ends below the smallest key >= key;
+        // the sign bit of compareTo is the direction, so there is no branch to mispredict
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (keys[k].compareTo(key) >>> 31);
+        }
+        // undo the right turns after the last left turn to get to that key
+        k >>= Integer.numberOfTrailingZeros(~k) + 1;
+
+        return k != 0 && keys[k].compareTo(key) == 0 ? eytzIndex[k] : -1;
+    }
+
     private int searchIndex(K key) {
+        if (eytzKeys != null)
+            return searchEytzinger(key);
+
         int li = 0;
         int re = size - 1;
 
@@ -59,21 +184,118 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
         return -1;
     }
 
+    /**
+     * Returns the number of compareTo calls of searchIndex for key.
+     */
+    private int comparisons(K key) {
+        if (eytzKeys != null) {
+            // one per level and one for the found slot
+            return 32 - Integer.numberOfLeadingZeros(size) + 1;
+        }
+
+        int n = 0;
+        int li = 0;
+        int re = size - 1;
+        while (re >= li) {
+            int m = (li + re) / 2;
+            int c = key.compareTo(data[m].getKey());
+            if (c == 0)
+                return n + 1;
+            n += 2;
+            if (c < 0) re = m - 1;
+            else li = m + 1;
+        }
+        return n;
+    }
+
+    @Override
+    public DictionaryMetrics enableMetrics() {
+        if (metrics == null)
+            metrics = new DictionaryMetrics();
+        return metrics;
+    }
+
+    @Override
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    @Override
+    public DictionaryMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public V search(K key) {
+        if (metrics != null) metrics.recordSearch(comparisons(key));
         int i = searchIndex(key);
         return i < 0 ? null : data[i].getValue();
     }
 
+    /**
+     * Looks up all keys.
+     * If the batch is large compared to the dictionary (m log n &gt; n), the keys are sorted and looked up
+     * in one pass over the array: every key is searched only from the position of the previous key on,
+     * by a galloping search that doubles its step until it passes the key and a binary search within the last step.
+     * This needs O(m log(n / m)) comparisons instead of O(m log n) and reads the array from left to right.
+     * A smaller batch is looked up key by key, since sorting it costs about as much as it saves.
+     */
+    @Override
+    public void searchAll(K[] keys, V[] out) {
+        if (out.length < keys.length)
+            throw new IllegalArgumentException("out is shorter than keys");
+
+        int log = 32 - Integer.numberOfLeadingZeros(size);
+        if ((long) keys.length * log <= size) {
+            for (int i = 0; i < keys.length; i++)
+                out[i] = search(keys[i]);
+            return;
+        }
+
+        if (metrics != null) {
+            for (K key : keys)
+                metrics.recordSearch(comparisons(key));
+        }
+        int pos = 0;
+        for (int idx : SortOrder.of(keys)) {
+            K key = keys[idx];
+
+            // all entries before lo are smaller than key
+            int lo = pos;
+            int hi = pos;
+            int step = 1;
+            while (hi < size && data[hi].getKey().compareTo(key) < 0) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            hi = Math.min(hi, size);
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (data[mid].getKey().compareTo(key) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+
+            pos = lo;
+            out[idx] = (lo < size && data[lo].getKey().compareTo(key) == 0) ? data[lo].getValue() : null;
+        }
+    }
+
     @Override
     public V remove(K key) {
+        if (metrics != null) metrics.recordRemove();
         int i = searchIndex(key);
         if (i < 0) {
             return null;
         }
 
         V val = data[i].getValue();
-        for (int j = i; j < size; j++) {
+        thaw();
+        if (metrics != null) metrics.recordShifts(size - 1 - i);
+        for (int j = i; j < size - 1; j++) {
             data[j] = data[j+1];
         }
         data[--size] = null;
@@ -86,10 +308,100 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
         return size;
     }
 
+    /**
+     * Writes all entries to file as binary snapshot (see SnapshotFile):
+     * the sorted run as it is, so load needs neither comparisons nor sorting.
+     * A BinaryTreeDictionary can load the same file.
+     * @param file file to be written, an existing file is replaced.
+     * @param keyCodec converts the keys to bytes.
+     * @param valueCodec converts the values to bytes.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path file, SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        var writer = new SnapshotFile.Writer(SnapshotFile.SORTED, size, 0);
+        for (int i = 0; i < size; i++) {
+            writer.write(data[i].getKey(), keyCodec);
+            writer.write(data[i].getValue(), valueCodec);
+        }
+        writer.writeTo(file);
+    }
+
+    /**
+     * Reads a dictionary from a binary snapshot written by save of a SortedArrayDictionary
+     * or a BinaryTreeDictionary. The entries are decoded straight into the array in O(n).
+     * @param file snapshot file.
+     * @param keyCodec converts bytes to keys, must match the codec used by save.
+     * @param valueCodec converts bytes to values, must match the codec used by save.
+     * @return the loaded dictionary.
+     * @throws IOException if the file cannot be read, is no sorted snapshot of a supported version or is corrupt.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> SortedArrayDictionary<K, V> load(Path file,
+            SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+        var reader = new SnapshotFile.Reader(file, SnapshotFile.SORTED);
+        int n = reader.count();
+        Entry<K, V>[] all = new Entry[Math.max(INITIAL_CAP, n)];
+        try {
+            for (int i = 0; i < n; i++)
+                all[i] = new Entry<>(reader.readAscending(keyCodec), reader.read(valueCodec));
+        } catch (RuntimeException e) {
+            throw reader.corrupt(e);
+        }
+        reader.finish();
+
+        SortedArrayDictionary<K, V> dict = new SortedArrayDictionary<>();
+        dict.data = all;
+        dict.size = n;
+        return dict;
+    }
+
+    @Override
+    public Entry<K, V> select(int k) {
+        Objects.checkIndex(k, size);
+        return data[k];
+    }
+
+    @Override
+    public int rank(K key) {
+        return lowerBound(key, false);
+    }
+
+    @Override
+    public int countRange(K from, K to) {
+        if (from.compareTo(to) > 0) return 0;
+        return lowerBound(to, true) - lowerBound(from, false);
+    }
+
+    /**
+     * Returns the number of keys smaller than key, or smaller or equal if inclusive is true.
+     */
+    private int lowerBound(K key, boolean inclusive) {
+        int li = 0;
+        int re = size;
+
+        while (li < re) {
+            int m = (li + re) >>> 1;
+            int c = data[m].getKey().compareTo(key);
+            if (c < 0 || (inclusive && c == 0)) {
+                li = m + 1;
+            } else {
+                re = m;
+            }
+        }
+
+        return li;
+    }
+
     @Override
     public Iterator<Entry<K, V>> iterator() {
+        return iteratorFrom(0);
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iteratorFrom(int k) {
+        Objects.checkIndex(k, size + 1);
         return new Iterator<>() {
-            private int i = 0;
+            private int i = k;
             private final int mc = modCount;
 
             @Override
@@ -107,15 +419,111 @@ public class SortedArrayDictionary<K extends Comparable<K>, V> implements Dictio
         };
     }
 
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        return new DictionaryCursor<>() {
+            private final int mc = modCount;
+            private int i = -1;
+
+            @Override
+            public boolean advance() {
+                if (mc != modCount) throw new ConcurrentModificationException();
+                if (i < size) i++;
+                return i < size;
+            }
+
+            @Override
+            public K key() {
+                return current().getKey();
+            }
+
+            @Override
+            public V value() {
+                return current().getValue();
+            }
+
+            private Entry<K, V> current() {
+                if (i < 0 || i >= size) throw new NoSuchElementException();
+                return data[i];
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int mc = modCount;
+        for (int i = 0; i < size; i++) {
+            action.accept(data[i].getKey(), data[i].getValue());
+        }
+        if (mc != modCount) throw new ConcurrentModificationException();
+    }
+
     @Override
     public void forEach(Consumer<? super Entry<K, V>> action) {
-        for (var e : this) {
-            action.accept(e);
+        int mc = modCount;
+        for (int i = 0; i < size; i++) {
+            action.accept(data[i]);
         }
+        if (mc != modCount) throw new ConcurrentModificationException();
     }
 
     @Override
     public Spliterator<Entry<K, V>> spliterator() {
-        return Dictionary.super.spliterator();
+        return new RangeSpliterator(0, size, modCount);
+    }
+
+    /**
+     * Spliterator over the array positions from index to fence; splitting halves the range.
+     */
+    private class RangeSpliterator implements Spliterator<Entry<K, V>> {
+        private int index;
+        private final int fence;
+        private final int mc;
+
+        RangeSpliterator(int index, int fence, int mc) {
+            this.index = index;
+            this.fence = fence;
+            this.mc = mc;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            var prefix = new RangeSpliterator(index, mid, mc);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (mc != modCount) throw new ConcurrentModificationException();
+            if (index >= fence) return false;
+            action.accept(data[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            for (; index < fence; index++) {
+                action.accept(data[index]);
+            }
+            if (mc != modCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | ORDERED | SORTED | DISTINCT | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return Comparator.comparing(Entry::getKey);
+        }
     }
 }
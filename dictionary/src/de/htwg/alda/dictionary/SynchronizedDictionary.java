@@ -0,0 +1,71 @@
+package de.htwg.alda.dictionary;
+
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe wrapper around any de.htwg.alda.dictionary.Dictionary.
+ * <p>
+ * Every operation is synchronized on this wrapper, so only one thread at a time
+ * can access the wrapped dictionary.
+ * Like for Collections.synchronizedMap, a caller that iterates has to synchronize on the wrapper itself
+ * for the whole iteration.
+ *
+ * @param <K> Key.
+ * @param <V> Value.
+ */
+public class SynchronizedDictionary<K, V> implements Dictionary<K, V> {
+    private final Dictionary<K, V> dict;
+
+    public SynchronizedDictionary(Dictionary<K, V> dict) {
+        this.dict = dict;
+    }
+
+    @Override
+    public synchronized V insert(K key, V value) {
+        return dict.insert(key, value);
+    }
+
+    @Override
+    public synchronized V search(K key) {
+        return dict.search(key);
+    }
+
+    @Override
+    public synchronized V remove(K key) {
+        return dict.remove(key);
+    }
+
+    @Override
+    public synchronized void searchAll(K[] keys, V[] out) {
+        dict.searchAll(keys, out);
+    }
+
+    @Override
+    public synchronized void insertAll(Iterable<? extends Entry<K, V>> entries) {
+        dict.insertAll(entries);
+    }
+
+    @Override
+    public synchronized int size() {
+        return dict.size();
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+        // unlike the iterator, this holds the lock for the whole traversal
+        dict.forEach(action);
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        // must be synchronized manually by the caller
+        return dict.iterator();
+    }
+
+    @Override
+    public DictionaryCursor<K, V> cursor() {
+        // must be synchronized manually by the caller, like the iterator
+        return dict.cursor();
+    }
+}
@@ -1,11 +1,22 @@
 package de.htwg.alda.dictionary;
 
-import java.io.FileReader;
+import javax.management.JMException;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Scanner;
 
 public class TestUI {
+    private static final int PAGE_SIZE = 20;
+    private static final String METRICS_NAME = "TestUI";
+
     public static Dictionary<String, String> dict = new SortedArrayDictionary<>();
+    private static DictionaryServer server;
+    // dict as it was before serve made it thread-safe, restored when the server stops
+    private static Dictionary<String, String> servedDict;
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -26,10 +37,18 @@ public class TestUI {
                 switch (command) {
                     case "create" -> createCmd(stringScanner);
                     case "r" -> readCmd(stringScanner);
-                    case "p" -> printCmd();
+                    case "p" -> printCmd(stringScanner);
                     case "s" -> searchCmd(stringScanner);
                     case "i" -> insertCmd(stringScanner);
                     case "d" -> deleteCmd(stringScanner);
+                    case "freeze" -> freezeCmd();
+                    case "compile" -> compileCmd();
+                    case "cache" -> cacheCmd(stringScanner);
+                    case "bloom" -> bloomCmd(stringScanner);
+                    case "save" -> saveCmd(stringScanner);
+                    case "load" -> loadCmd(stringScanner);
+                    case "stats" -> statsCmd(stringScanner);
+                    case "serve" -> serveCmd(stringScanner);
                     default -> unknownCmd();
                 }
             } catch (RuntimeException e) {
@@ -39,6 +58,8 @@ public class TestUI {
         }
 
         scanner.close();
+        stopServer();
+        closeDict();
         System.out.println("Goodbye! Tschüss!");
     }
 
@@ -49,41 +70,147 @@ public class TestUI {
     public static void createCmd(Scanner scanner) {
         String impl = scanner.next();
 
-        dict = switch (impl) {
+        stopServer();
+        closeDict();
+        setDict(switch (impl) {
             case "HashDictionary" -> new HashDictionary<>();
+            case "RobinHood" -> new RobinHoodHashDictionary<>();
+            case "ConcurrentHash" -> new ConcurrentHashDictionary<>();
+            case "ConcurrentSkipList" -> new ConcurrentSkipListDictionary<>();
             case "BinaryTree" -> new BinaryTreeDictionary<>();
+            case "Persistent" -> new PersistentTreeDictionary<>();
+            case "BPlusTree" -> new BPlusTreeDictionary<>();
+            case "ART" -> new AdaptiveRadixTreeDictionary<>();
+            case "Mapped" -> openMapped(scanner.next());
             default -> new SortedArrayDictionary<>();
-        };
+        });
 
         System.out.println("Created " + dict.getClass().getName());
     }
 
+    private static Dictionary<String, String> openMapped(String fileName) {
+        try {
+            return new MappedDictionary(Path.of(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the current dictionary. Metrics registered over JMX belong to the old one, so they are removed.
+     */
+    private static void setDict(Dictionary<String, String> newDict) {
+        try {
+            DictionaryMetrics.unregister(METRICS_NAME);
+        } catch (JMException e) {
+            System.err.println(e.getMessage());
+        }
+        dict = newDict;
+    }
+
+    /**
+     * Closes the current dictionary if it holds a file.
+     */
+    private static void closeDict() {
+        if (dict instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
     public static void readCmd(Scanner scanner) {
         boolean hasN = scanner.hasNextInt();
         int n = 0;
         if (hasN) n = scanner.nextInt();
         String fileName = scanner.next();
 
-        try (Scanner reader = new Scanner(new FileReader(fileName))) {
-            long startTime = startTimer();
-            int i = 0;
-            while (reader.hasNextLine()) {
-                if ((hasN && i < n) || !reader.hasNext()) break;
-                dict.insert(reader.next(), reader.next());
-                i++;
+        try {
+            // the loader inserts all entries at once, e.g. single inserts would shift the array of a SortedArrayDictionary for every entry
+            DictionaryLoader.Result r = DictionaryLoader.load(Path.of(fileName), dict, hasN ? n : Integer.MAX_VALUE);
+            System.out.printf("Read %d entries in %.2fms (%.1f MB/s, %.0f entries/s)%n",
+                    r.entries(), r.millis(), r.megabytesPerSecond(), r.entriesPerSecond());
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void saveCmd(Scanner scanner) {
+        Path file = Path.of(scanner.next());
+        long startTime = startTimer();
+        try {
+            if (dict instanceof HashDictionary<String, String> hash) {
+                hash.save(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
+            } else if (dict instanceof SortedArrayDictionary<String, String> sorted) {
+                sorted.save(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
+            } else if (dict instanceof BinaryTreeDictionary<String, String> tree) {
+                tree.save(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
+            } else {
+                System.out.println("Only HashDictionary, SortedArrayDictionary and BinaryTreeDictionary can be saved");
+                return;
             }
+            System.out.printf("Saved %d entries in %.2fms%n", dict.size(), endTimer(startTime));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
 
+    private static void loadCmd(Scanner scanner) {
+        // a sorted snapshot is loaded into a BinaryTreeDictionary if that is the current type, else into a SortedArrayDictionary
+        Path file = Path.of(scanner.next());
+        if (refuseWhileServing())
+            return;
+        long startTime = startTimer();
+        try {
+            Dictionary<String, String> loaded;
+            if (SnapshotFile.kindOf(file) == SnapshotFile.HASH)
+                loaded = HashDictionary.load(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
+            else if (dict instanceof BinaryTreeDictionary)
+                loaded = BinaryTreeDictionary.load(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
+            else
+                loaded = SortedArrayDictionary.load(file, SnapshotCodec.STRING, SnapshotCodec.STRING);
             double endTime = endTimer(startTime);
 
-            System.out.printf("Read %d entries in %.2fms%n", i, endTime);
+            closeDict();
+            setDict(loaded);
+            System.out.printf("Loaded %d entries into %s in %.2fms (%.1f MB/s)%n", dict.size(), dict.getClass().getName(),
+                    endTime, Files.size(file) / 1.0e3 / endTime);
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
     }
 
-    private static void printCmd() {
-        for (var e : dict) {
-            System.out.println(e.getKey() + " " + e.getValue());
+    private static void printCmd(Scanner scanner) {
+        // p prints everything, p <from> [<count>] prints one page
+        if (!scanner.hasNextInt()) {
+            dict.forEach((key, value) -> System.out.println(key + " " + value));
+            return;
+        }
+
+        int from = Math.min(scanner.nextInt(), dict.size());
+        int count = scanner.hasNextInt() ? scanner.nextInt() : PAGE_SIZE;
+
+        if (dict instanceof OrderedDictionary<String, String> ordered) {
+            Iterator<Dictionary.Entry<String, String>> it = ordered.iteratorFrom(from);
+            for (int i = 0; i < count && it.hasNext(); i++) {
+                var e = it.next();
+                System.out.println(e.getKey() + " " + e.getValue());
+            }
+            return;
+        }
+
+        // skipping with the cursor creates no entries for the skipped part;
+        // while serve runs, dict may be a SynchronizedDictionary, whose cursor needs its lock
+        synchronized (dict) {
+            DictionaryCursor<String, String> c = dict.cursor();
+            int i = 0;
+            while (i < from + count && c.advance()) {
+                if (i >= from)
+                    System.out.println(c.key() + " " + c.value());
+                i++;
+            }
         }
     }
 
@@ -115,6 +242,137 @@ public class TestUI {
         else System.out.println(removed + " was removed");
     }
 
+    private static void freezeCmd() {
+        if (dict instanceof SortedArrayDictionary<String, String> sorted) {
+            long startTime = startTimer();
+            sorted.freeze();
+            double endTime = endTimer(startTime);
+            System.out.printf("Frozen in %.2fms%n", endTime);
+        } else {
+            System.out.println("Only a SortedArrayDictionary can be frozen");
+        }
+    }
+
+    private static void compileCmd() {
+        // replaces the current dictionary by a read-only DawgDictionary with the same entries
+        if (refuseWhileServing())
+            return;
+        long startTime = startTimer();
+        DawgDictionary dawg = DawgDictionary.compile(dict);
+        double endTime = endTimer(startTime);
+
+        closeDict();
+        setDict(dawg);
+        System.out.printf("Compiled %d entries into %d states and %d arcs (%d bytes) in %.2fms%n",
+                dawg.size(), dawg.stateCount(), dawg.arcCount(), dawg.toByteArray().length, endTime);
+    }
+
+    private static void cacheCmd(Scanner scanner) {
+        // cache <n> puts a cache of n entries in front of the current dictionary, cache prints its counters
+        if (scanner.hasNextInt()) {
+            if (refuseWhileServing())
+                return;
+            setDict(new CachingDictionary<>(dict, scanner.nextInt()));
+            System.out.println("Created " + dict.getClass().getName());
+        } else if (dict instanceof CachingDictionary<String, String> cached) {
+            System.out.printf("%d cached, %d hits, %d misses (%.1f%%), %d evictions%n", cached.cachedCount(),
+                    cached.hits(), cached.misses(), 100 * cached.hitRate(), cached.evictions());
+        } else {
+            System.out.println("No cache, create one with cache <n>");
+        }
+    }
+
+    private static void bloomCmd(Scanner scanner) {
+        // bloom [bitsPerKey] puts a Bloom filter in front of the current dictionary, a second bloom prints its counters
+        if (dict instanceof BloomFilteredDictionary<String, String> bloom && !scanner.hasNextInt()) {
+            System.out.printf("%d filtered, %d false positives, expected fpr %.3f%%, observed fpr %.3f%%, %d bytes%n",
+                    bloom.filteredCount(), bloom.falsePositiveCount(), 100 * bloom.expectedFalsePositiveRate(),
+                    100 * bloom.observedFalsePositiveRate(), bloom.memoryBytes());
+            return;
+        }
+        if (refuseWhileServing())
+            return;
+
+        long startTime = startTimer();
+        setDict(scanner.hasNextInt() ? new BloomFilteredDictionary<>(dict, scanner.nextInt()) : new BloomFilteredDictionary<>(dict));
+        double endTime = endTimer(startTime);
+        System.out.printf("Created %s in %.2fms%n", dict.getClass().getName(), endTime);
+    }
+
+    private static void statsCmd(Scanner scanner) {
+        // stats on / stats off switch the metrics of the current dictionary, stats prints them;
+        // while on, they are also registered over JMX under the name TestUI
+        if (!(dict instanceof Instrumented instrumented)) {
+            System.out.println("Only HashDictionary, SortedArrayDictionary and BinaryTreeDictionary have metrics");
+            return;
+        }
+
+        try {
+            String mode = scanner.hasNext() ? scanner.next() : "";
+            if (mode.equals("on")) {
+                DictionaryMetrics.unregister(METRICS_NAME);
+                System.out.println("Metrics on, registered as " + instrumented.enableMetrics().register(METRICS_NAME));
+            } else if (mode.equals("off")) {
+                instrumented.disableMetrics();
+                DictionaryMetrics.unregister(METRICS_NAME);
+                System.out.println("Metrics off");
+            } else if (instrumented.metrics() == null) {
+                System.out.println("Metrics are off, turn them on with stats on");
+            } else {
+                System.out.println(instrumented.metrics());
+            }
+        } catch (JMException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void serveCmd(Scanner scanner) {
+        // serve [port] makes the current dictionary available over TCP (0 or no port: any free one), serve stop ends it;
+        // the dictionary is made thread-safe first, and the commands of this UI keep working on it,
+        // except those that would replace it behind the back of the server
+        if (scanner.hasNext("stop")) {
+            stopServer();
+            System.out.println("Server stopped");
+            return;
+        }
+
+        int port = scanner.hasNextInt() ? scanner.nextInt() : 0;
+        stopServer();
+        Dictionary<String, String> safe = DictionaryServer.threadSafe(dict);
+        try {
+            server = new DictionaryServer(safe, port);
+            servedDict = dict;
+            setDict(safe);
+            System.out.printf("Serving %s on localhost:%d%n", dict.getClass().getName(), server.port());
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the server, if there is one, and goes back to the dictionary without the thread-safe wrapper,
+     * which closeDict can close again.
+     */
+    private static void stopServer() {
+        if (server == null)
+            return;
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        server = null;
+        setDict(servedDict);
+        servedDict = null;
+    }
+
+    private static boolean refuseWhileServing() {
+        if (server == null)
+            return false;
+        System.out.println("The dictionary is being served, stop the server first with serve stop");
+        return true;
+    }
+
     private static long startTimer() {
         return System.nanoTime();
     }
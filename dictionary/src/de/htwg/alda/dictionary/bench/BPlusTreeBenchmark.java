@@ -0,0 +1,136 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.BPlusTreeDictionary;
+import de.htwg.alda.dictionary.BinaryTreeDictionary;
+import de.htwg.alda.dictionary.Dictionary;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Compares BPlusTreeDictionary with several orders against the AVL tree BinaryTreeDictionary:
+ * first on the word lists, then on random Integer keys of growing size.
+ * For every run the load time, the time per search (hits and misses) and the time for a full iteration are printed.
+ * <p>
+ * Usage: BPlusTreeBenchmark [size ...]
+ * <p>
+ * The word lists are read from the working directory. Sizes default to 1M, 2M and 5M keys;
+ * larger sizes up to 50M need a big heap, e.g. -Xmx16g.
+ */
+public class BPlusTreeBenchmark {
+    private static final String[] WORD_FILES = {"8kwords.txt", "dtengl.txt"};
+    private static final int[] DEF_SIZES = {1_000_000, 2_000_000, 5_000_000};
+    private static final int SEARCHES = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEF_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        for (String file : WORD_FILES) {
+            List<String[]> words = readWords(file);
+            List<String> keys = new ArrayList<>();
+            List<String> misses = new ArrayList<>();
+            for (String[] w : words) {
+                keys.add(w[0]);
+                misses.add(w[0] + "x");
+            }
+
+            System.out.printf("%s, %d entries%n", file, words.size());
+            for (Candidate<String> c : candidates(String.class)) {
+                // the word lists are small, so repeat the load to get a stable time
+                for (int warmup = 0; warmup < 5; warmup++)
+                    load(c.factory.get(), words);
+                run(c, words, keys, misses);
+            }
+        }
+
+        Random random = new Random(42);
+        for (int n : sizes) {
+            List<Integer[]> entries = new ArrayList<>(n);
+            List<Integer> keys = new ArrayList<>(n);
+            List<Integer> misses = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                // even keys are inserted, odd keys miss
+                Integer key = random.nextInt() & ~1;
+                entries.add(new Integer[]{key, key});
+                keys.add(key);
+                misses.add(key | 1);
+            }
+
+            System.out.printf("random Integer keys, %d entries%n", n);
+            for (Candidate<Integer> c : candidates(Integer.class))
+                run(c, entries, keys, misses);
+        }
+    }
+
+    private static <K extends Comparable<K>> List<Candidate<K>> candidates(Class<K> keyType) {
+        return List.of(
+                new Candidate<K>("BinaryTreeDictionary", BinaryTreeDictionary<K, K>::new),
+                new Candidate<K>("BPlusTreeDictionary(16)", () -> new BPlusTreeDictionary<K, K>(16)),
+                new Candidate<K>("BPlusTreeDictionary(64)", () -> new BPlusTreeDictionary<K, K>(64)),
+                new Candidate<K>("BPlusTreeDictionary(256)", () -> new BPlusTreeDictionary<K, K>(256)));
+    }
+
+    private static <K extends Comparable<K>> void run(Candidate<K> c, List<K[]> entries, List<K> keys, List<K> misses) {
+        Dictionary<K, K> dict = c.factory.get();
+
+        long t0 = System.nanoTime();
+        load(dict, entries);
+        long loaded = System.nanoTime();
+        // one untimed pass, so the searches are compiled before they are measured
+        long sink = search(dict, keys) + search(dict, misses);
+        long t1 = System.nanoTime();
+        sink += search(dict, keys);
+        long t2 = System.nanoTime();
+        sink += search(dict, misses);
+        long t3 = System.nanoTime();
+        for (var e : dict)
+            sink += e.getKey().hashCode();
+        long t4 = System.nanoTime();
+
+        int searches = Math.min(SEARCHES, keys.size());
+        System.out.printf("  %-26s load %9.2f ms  hit %7.1f ns  miss %7.1f ns  iterate %8.2f ms  (%d)%n",
+                c.name, (loaded - t0) / 1e6, (double) (t2 - t1) / searches, (double) (t3 - t2) / searches,
+                (t4 - t3) / 1e6, sink & 1);
+    }
+
+    private static <K extends Comparable<K>> void load(Dictionary<K, K> dict, List<K[]> entries) {
+        for (K[] e : entries)
+            dict.insert(e[0], e[1]);
+    }
+
+    private static <K> long search(Dictionary<K, K> dict, List<K> keys) {
+        long found = 0;
+        int n = Math.min(SEARCHES, keys.size());
+        // step through the keys with a large odd stride, so the order is not the insertion order
+        for (int i = 0, j = 0; i < n; i++, j = (j + 7919) % keys.size()) {
+            if (dict.search(keys.get(j)) != null)
+                found++;
+        }
+        return found;
+    }
+
+    private static List<String[]> readWords(String fileName) throws IOException {
+        List<String[]> words = new ArrayList<>();
+        try (Scanner reader = new Scanner(new FileReader(fileName))) {
+            while (reader.hasNext()) {
+                String key = reader.next();
+                if (!reader.hasNext()) break;
+                words.add(new String[]{key, reader.next()});
+            }
+        }
+        return words;
+    }
+
+    private record Candidate<K extends Comparable<K>>(String name, Supplier<Dictionary<K, K>> factory) {
+    }
+}
@@ -0,0 +1,160 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.BinaryTreeDictionary;
+import de.htwg.alda.dictionary.Dictionary;
+import de.htwg.alda.dictionary.HashDictionary;
+import de.htwg.alda.dictionary.SortedArrayDictionary;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Compares the time per key of searchAll with single search calls for the same keys,
+ * for batches of growing size (90% hits, 10% misses).
+ * The keys come from dtengl.txt, which fits into the CPU caches, and from a large set of random keys,
+ * where sorted probes also save cache misses.
+ * <p>
+ * Usage: BatchSearchBenchmark [syntheticSize [batchSize ...]]
+ * <p>
+ * dtengl.txt is read from the working directory. Defaults are 1000000 random keys
+ * and batch sizes 16, 256, 4096 and 65536.
+ */
+public class BatchSearchBenchmark {
+    private static final String WORD_FILE = "dtengl.txt";
+    private static final int DEF_SYNTHETIC_SIZE = 1_000_000;
+    private static final int[] DEF_BATCH_SIZES = {16, 256, 4096, 65536};
+    // keys looked up per measurement, spread over as many batches as needed
+    private static final int KEYS_PER_RUN = 500_000;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int syntheticSize = args.length > 0 ? Integer.parseInt(args[0]) : DEF_SYNTHETIC_SIZE;
+        int[] batchSizes = DEF_BATCH_SIZES;
+        if (args.length > 1) {
+            batchSizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++)
+                batchSizes[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        Random random = new Random(42);
+        run(WORD_FILE, readWords(WORD_FILE), batchSizes, random);
+        run("random keys", synthetic(syntheticSize, random), batchSizes, random);
+    }
+
+    private static void run(String name, List<String[]> words, int[] batchSizes, Random random) {
+        System.out.printf("%s, %d entries%n", name, words.size());
+        System.out.printf("  %-24s %10s %14s %16s %8s%n", "dictionary", "batch", "search ns/key", "searchAll ns/key", "speedup");
+
+        for (Candidate c : candidates()) {
+            Dictionary<String, String> dict = c.factory.get();
+            List<Dictionary.Entry<String, String>> entries = new ArrayList<>();
+            for (String[] w : words)
+                entries.add(new Dictionary.Entry<>(w[0], w[1]));
+            dict.insertAll(entries);
+
+            for (int batchSize : batchSizes) {
+                String[][] batches = batches(words, batchSize, random);
+                double single = Double.MAX_VALUE;
+                double batched = Double.MAX_VALUE;
+                // the best of several runs, the first ones include the compilation
+                for (int run = 0; run < RUNS; run++) {
+                    single = Math.min(single, single(dict, batches));
+                    batched = Math.min(batched, batched(dict, batches));
+                }
+                System.out.printf("  %-24s %10d %14.1f %16.1f %8.2f%n", c.name, batchSize, single, batched, single / batched);
+            }
+        }
+    }
+
+    private static List<Candidate> candidates() {
+        return List.of(
+                new Candidate("SortedArrayDictionary", SortedArrayDictionary::new),
+                new Candidate("BinaryTreeDictionary", BinaryTreeDictionary::new),
+                new Candidate("HashDictionary", HashDictionary::new));
+    }
+
+    /**
+     * Returns the ns per key for single search calls.
+     */
+    private static double single(Dictionary<String, String> dict, String[][] batches) {
+        long found = 0;
+        long keys = 0;
+        long start = System.nanoTime();
+        for (String[] batch : batches) {
+            for (String key : batch) {
+                if (dict.search(key) != null)
+                    found++;
+            }
+            keys += batch.length;
+        }
+        long time = System.nanoTime() - start;
+        check(found);
+        return (double) time / keys;
+    }
+
+    /**
+     * Returns the ns per key for searchAll, one call per batch.
+     */
+    private static double batched(Dictionary<String, String> dict, String[][] batches) {
+        long found = 0;
+        long keys = 0;
+        String[] out = new String[batches[0].length];
+        long start = System.nanoTime();
+        for (String[] batch : batches) {
+            dict.searchAll(batch, out);
+            for (String value : out) {
+                if (value != null)
+                    found++;
+            }
+            keys += batch.length;
+        }
+        long time = System.nanoTime() - start;
+        check(found);
+        return (double) time / keys;
+    }
+
+    private static void check(long found) {
+        // keeps the JIT from dropping the searches
+        if (found < 0)
+            System.out.println(found);
+    }
+
+    private static String[][] batches(List<String[]> words, int batchSize, Random random) {
+        int count = Math.max(1, KEYS_PER_RUN / batchSize);
+        String[][] batches = new String[count][batchSize];
+        for (String[] batch : batches) {
+            for (int i = 0; i < batchSize; i++) {
+                String key = words.get(random.nextInt(words.size()))[0];
+                batch[i] = random.nextInt(10) == 0 ? key + "x" : key;
+            }
+        }
+        return batches;
+    }
+
+    private static List<String[]> synthetic(int n, Random random) {
+        List<String[]> words = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            words.add(new String[]{Long.toString(random.nextLong() & Long.MAX_VALUE, 36), "v" + i});
+        return words;
+    }
+
+    private static List<String[]> readWords(String fileName) throws IOException {
+        List<String[]> words = new ArrayList<>();
+        try (Scanner reader = new Scanner(new FileReader(fileName))) {
+            while (reader.hasNext()) {
+                String key = reader.next();
+                if (!reader.hasNext()) break;
+                words.add(new String[]{key, reader.next()});
+            }
+        }
+        return words;
+    }
+
+    private record Candidate(String name, Supplier<Dictionary<String, String>> factory) {
+    }
+}
@@ -0,0 +1,117 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded throughput of the thread-safe dictionaries.
+ * <p>
+ * Every thread picks random keys from a fixed range and searches them, or with the given
+ * write ratio inserts or removes them (half each).
+ * The dictionary is filled with half of the key range beforehand.
+ * <p>
+ * The read-mostly ratios (1% and 0.1% writes) compare ReadMostlyDictionary, whose readers do not block
+ * each other, with the synchronized wrapper around the same dictionary.
+ * The thread counts are doubled from 1 up to maxThreads.
+ * <p>
+ * Usage: ConcurrentDictionaryBenchmark [keyRange] [millisPerRun] [maxThreads]
+ * <p>
+ * Defaults are 100000 keys, 1000 ms and 64 threads.
+ */
+public class ConcurrentDictionaryBenchmark {
+    // writes per mille
+    private static final int[] WRITE_PER_MILLE = {500, 100, 10, 1, 0};
+
+    public static void main(String[] args) throws InterruptedException {
+        int keyRange = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int millis = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        List<Candidate> candidates = List.of(
+                new Candidate("synchronized BinaryTreeDictionary", () -> new SynchronizedDictionary<>(new BinaryTreeDictionary<Integer, Integer>())),
+                new Candidate("read-mostly BinaryTreeDictionary", () -> new ReadMostlyDictionary<>(new BinaryTreeDictionary<Integer, Integer>())),
+                new Candidate("synchronized SortedArrayDictionary", () -> new SynchronizedDictionary<>(new SortedArrayDictionary<Integer, Integer>())),
+                new Candidate("read-mostly SortedArrayDictionary", () -> new ReadMostlyDictionary<>(new SortedArrayDictionary<Integer, Integer>())),
+                new Candidate("PersistentTreeDictionary", PersistentTreeDictionary::new),
+                new Candidate("ConcurrentSkipListDictionary", ConcurrentSkipListDictionary::new),
+                new Candidate("ConcurrentHashDictionary", ConcurrentHashDictionary::new));
+
+        for (int writePerMille : WRITE_PER_MILLE) {
+            System.out.printf("%.1f%% writes, %d keys, ops/s%n", writePerMille / 10.0, keyRange);
+            System.out.printf("  %-36s", "threads");
+            for (int t = 1; t <= maxThreads; t *= 2)
+                System.out.printf("%12d", t);
+            System.out.println();
+
+            for (Candidate c : candidates) {
+                System.out.printf("  %-36s", c.name);
+                for (int t = 1; t <= maxThreads; t *= 2)
+                    System.out.printf("%12.0f", run(c.factory.get(), keyRange, writePerMille, t, millis));
+                System.out.println();
+            }
+        }
+    }
+
+    private static double run(Dictionary<Integer, Integer> dict, int keyRange, int writePerMille, int threads, int millis)
+            throws InterruptedException {
+        for (int k = 0; k < keyRange; k += 2)
+            dict.insert(k, k);
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] ops = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (!stop.get()) {
+                    // check the stop flag only every few operations
+                    for (int i = 0; i < 64; i++) {
+                        Integer key = random.nextInt(keyRange);
+                        int r = random.nextInt(2000);
+                        if (r < writePerMille)
+                            dict.insert(key, key);
+                        else if (r < 2 * writePerMille)
+                            dict.remove(key);
+                        else
+                            dict.search(key);
+                    }
+                    n += 64;
+                }
+                ops[id] = n;
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread worker : workers)
+            worker.join();
+        double seconds = (System.nanoTime() - begin) / 1.0e9;
+
+        long total = 0;
+        for (long n : ops)
+            total += n;
+        return total / seconds;
+    }
+
+    private record Candidate(String name, Supplier<Dictionary<Integer, Integer>> factory) {
+    }
+}
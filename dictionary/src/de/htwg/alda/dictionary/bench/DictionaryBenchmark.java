@@ -0,0 +1,377 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.BinaryTreeDictionary;
+import de.htwg.alda.dictionary.Dictionary;
+import de.htwg.alda.dictionary.HashDictionary;
+import de.htwg.alda.dictionary.SortedArrayDictionary;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark harness for the string dictionaries in the style of JMH, without needing the JMH build setup.
+ * <p>
+ * Every workload runs for every dictionary on every data set: a number of warmup iterations
+ * followed by measured iterations of at least ITERATION_MILLIS each.
+ * Only the workload itself is timed, building the dictionary it works on is not.
+ * For each run the average time per operation with its 99.9% confidence interval, the throughput,
+ * the bytes allocated per operation (from com.sun.management.ThreadMXBean, like the JMH GC profiler)
+ * and the number and time of garbage collections are printed.
+ * <p>
+ * All results are also written as JSON in the layout of JMH's JSON result format,
+ * so the files of two commits can be compared with the usual JMH tools.
+ * <p>
+ * Usage: DictionaryBenchmark [syntheticSize [iterations [outputFile]]]
+ * <p>
+ * dtengl.txt is read from the working directory. Defaults are 100000 random keys, 5 iterations
+ * and dictionary-benchmark.json.
+ */
+public class DictionaryBenchmark {
+    private static final String WORD_FILE = "dtengl.txt";
+    private static final int DEF_SYNTHETIC_SIZE = 100_000;
+    private static final int DEF_ITERATIONS = 5;
+    private static final String DEF_OUTPUT = "dictionary-benchmark.json";
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final long ITERATION_MILLIS = 200;
+    // z value of the 99.9% interval, the normal distribution stands in for JMH's t distribution
+    private static final double Z_999 = 3.29;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // results are summed up here, so the JIT cannot drop the work
+    private static volatile long sink;
+
+    public static void main(String[] args) throws IOException {
+        int syntheticSize = args.length > 0 ? Integer.parseInt(args[0]) : DEF_SYNTHETIC_SIZE;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEF_ITERATIONS;
+        Path output = Path.of(args.length > 2 ? args[2] : DEF_OUTPUT);
+
+        List<DataSet> dataSets = List.of(readWords(WORD_FILE), synthetic(syntheticSize, 42));
+        List<Result> results = new ArrayList<>();
+
+        for (DataSet data : dataSets) {
+            System.out.printf("%s, %d entries%n", data.name, data.keys.length);
+            System.out.printf("  %-12s %-28s %14s %12s %14s %12s %6s %8s%n", "workload", "dictionary",
+                    "avg ns/op", "error", "ops/s", "alloc B/op", "gc", "gc ms");
+            for (Workload w : Workload.values()) {
+                for (Candidate c : candidates()) {
+                    Result r = measure(w, c, data, iterations);
+                    results.add(r);
+                    System.out.printf(Locale.ROOT, "  %-12s %-28s %14.1f %12.1f %14.0f %12.1f %6d %8d%n",
+                            w.label, c.name, r.avgNanos, r.error, r.throughput(), r.allocPerOp, r.gcCount, r.gcMillis);
+                }
+            }
+        }
+
+        Files.writeString(output, toJson(results, iterations));
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static List<Candidate> candidates() {
+        return List.of(
+                new Candidate("SortedArrayDictionary", SortedArrayDictionary::new),
+                new Candidate("HashDictionary(16)", () -> new HashDictionary<>(16)),
+                new Candidate("HashDictionary(1024)", () -> new HashDictionary<>(1024)),
+                new Candidate("HashDictionary(131072)", () -> new HashDictionary<>(131072)),
+                new Candidate("BinaryTreeDictionary", BinaryTreeDictionary::new));
+    }
+
+    /**
+     * The measured operations. run returns the number of operations it did.
+     */
+    private enum Workload {
+        LOAD("load", false) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                for (int i = 0; i < data.keys.length; i++)
+                    dict.insert(data.keys[i], data.values[i]);
+                return data.keys.length;
+            }
+        },
+        SEARCH_HIT("searchHit", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                long found = 0;
+                for (int i : data.order) {
+                    if (dict.search(data.keys[i]) != null)
+                        found++;
+                }
+                sink += found;
+                return data.order.length;
+            }
+        },
+        SEARCH_MISS("searchMiss", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                long found = 0;
+                for (int i : data.order) {
+                    if (dict.search(data.misses[i]) != null)
+                        found++;
+                }
+                sink += found;
+                return data.order.length;
+            }
+        },
+        REMOVE("remove", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                for (int i : data.order)
+                    dict.remove(data.keys[i]);
+                return data.order.length;
+            }
+        },
+        ITERATE("iterate", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                long h = 0;
+                int n = 0;
+                for (Dictionary.Entry<String, String> e : dict) {
+                    h += e.getKey().length();
+                    n++;
+                }
+                sink += h;
+                return n;
+            }
+        },
+        MIXED_90("read90", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                return mixed(dict, data, 10);
+            }
+        },
+        MIXED_50("read50", true) {
+            @Override
+            int run(Dictionary<String, String> dict, DataSet data) {
+                return mixed(dict, data, 50);
+            }
+        };
+
+        final String label;
+        // whether the workload starts with a dictionary holding the whole data set
+        final boolean loaded;
+
+        Workload(String label, boolean loaded) {
+            this.label = label;
+            this.loaded = loaded;
+        }
+
+        abstract int run(Dictionary<String, String> dict, DataSet data);
+
+        /**
+         * Searches, except for writePercent percent of the operations, which alternately
+         * remove a key and insert it again, so the size of the dictionary stays the same.
+         */
+        static int mixed(Dictionary<String, String> dict, DataSet data, int writePercent) {
+            long found = 0;
+            int removed = -1;
+            for (int j = 0; j < data.order.length; j++) {
+                int i = data.order[j];
+                if (data.dice[j] >= writePercent) {
+                    if (dict.search(data.keys[i]) != null)
+                        found++;
+                } else if (removed < 0) {
+                    dict.remove(data.keys[i]);
+                    removed = i;
+                } else {
+                    dict.insert(data.keys[removed], data.values[removed]);
+                    removed = -1;
+                }
+            }
+            sink += found;
+            return data.order.length;
+        }
+    }
+
+    private static Result measure(Workload w, Candidate c, DataSet data, int iterations) {
+        // dictionaries that the workload does not change are built only once
+        Dictionary<String, String> shared = null;
+        if (w == Workload.SEARCH_HIT || w == Workload.SEARCH_MISS || w == Workload.ITERATE)
+            shared = load(c.factory.get(), data);
+
+        double[] nanosPerOp = new double[iterations];
+        long allocated = 0;
+        long ops = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+
+        for (int it = -WARMUP_ITERATIONS; it < iterations; it++) {
+            long gcCountStart = gcCount();
+            long gcMillisStart = gcMillis();
+            long iterationNanos = 0;
+            long iterationOps = 0;
+            long iterationAlloc = 0;
+
+            while (iterationNanos < ITERATION_MILLIS * 1_000_000) {
+                Dictionary<String, String> dict = shared;
+                if (dict == null)
+                    dict = w.loaded ? load(c.factory.get(), data) : c.factory.get();
+
+                long alloc = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                int n = w.run(dict, data);
+                iterationNanos += System.nanoTime() - start;
+                iterationAlloc += THREADS.getCurrentThreadAllocatedBytes() - alloc;
+                iterationOps += n;
+            }
+
+            if (it >= 0) {
+                nanosPerOp[it] = (double) iterationNanos / iterationOps;
+                allocated += iterationAlloc;
+                ops += iterationOps;
+                gcCount += gcCount() - gcCountStart;
+                gcMillis += gcMillis() - gcMillisStart;
+            }
+        }
+
+        double mean = 0;
+        for (double x : nanosPerOp)
+            mean += x;
+        mean /= iterations;
+        double variance = 0;
+        for (double x : nanosPerOp)
+            variance += (x - mean) * (x - mean);
+        double error = iterations > 1 ? Z_999 * Math.sqrt(variance / (iterations - 1) / iterations) : Double.NaN;
+
+        return new Result(w.label, c.name, data.name, mean, error, nanosPerOp, (double) allocated / ops, gcCount, gcMillis);
+    }
+
+    private static Dictionary<String, String> load(Dictionary<String, String> dict, DataSet data) {
+        Workload.LOAD.run(dict, data);
+        return dict;
+    }
+
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    private static long gcMillis() {
+        long t = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            t += Math.max(0, gc.getCollectionTime());
+        return t;
+    }
+
+    private static DataSet readWords(String fileName) throws IOException {
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        try (Scanner reader = new Scanner(new FileReader(fileName))) {
+            while (reader.hasNext()) {
+                String key = reader.next();
+                if (!reader.hasNext()) break;
+                keys.add(key);
+                values.add(reader.next());
+            }
+        }
+        return new DataSet(fileName, keys.toArray(new String[0]), values.toArray(new String[0]), new Random(7));
+    }
+
+    /**
+     * Random lower case words of 4 to 15 letters, like the word lists but without their common prefixes.
+     */
+    private static DataSet synthetic(int n, long seed) {
+        Random random = new Random(seed);
+        String[] keys = new String[n];
+        String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 4 + random.nextInt(12);
+            for (int j = 0; j < len; j++)
+                sb.append((char) ('a' + random.nextInt(26)));
+            // the index makes every key unique
+            keys[i] = sb.append(i).toString();
+            values[i] = "v" + i;
+        }
+        return new DataSet("random" + n, keys, values, random);
+    }
+
+    private static final class DataSet {
+        final String name;
+        final String[] keys;
+        final String[] values;
+        // keys that are not contained, each differs from a key in its last character only
+        final String[] misses;
+        // the order in which the keys are searched and removed, a random permutation
+        final int[] order;
+        // random numbers 0 .. 99 choosing between read and write in the mixed workloads
+        final int[] dice;
+
+        DataSet(String name, String[] keys, String[] values, Random random) {
+            this.name = name;
+            this.keys = keys;
+            this.values = values;
+            misses = new String[keys.length];
+            for (int i = 0; i < keys.length; i++)
+                misses[i] = keys[i] + "#";
+
+            order = new int[keys.length];
+            dice = new int[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+                dice[i] = random.nextInt(100);
+            }
+        }
+    }
+
+    private record Candidate(String name, Supplier<Dictionary<String, String>> factory) {
+    }
+
+    private record Result(String workload, String dictionary, String dataSet, double avgNanos, double error,
+                          double[] nanosPerOp, double allocPerOp, long gcCount, long gcMillis) {
+        double throughput() {
+            return 1e9 / avgNanos;
+        }
+    }
+
+    private static String toJson(List<Result> results, int iterations) {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            sb.append("  {\n");
+            sb.append("    \"benchmark\": \"").append(DictionaryBenchmark.class.getName()).append('.').append(r.workload).append("\",\n");
+            sb.append("    \"mode\": \"avgt\",\n");
+            sb.append("    \"warmupIterations\": ").append(WARMUP_ITERATIONS).append(",\n");
+            sb.append("    \"measurementIterations\": ").append(iterations).append(",\n");
+            sb.append("    \"measurementTime\": \"").append(ITERATION_MILLIS).append(" ms\",\n");
+            sb.append("    \"params\": {\"dictionary\": \"").append(r.dictionary)
+                    .append("\", \"dataSet\": \"").append(r.dataSet).append("\"},\n");
+            sb.append("    \"primaryMetric\": {\"score\": ").append(number(r.avgNanos))
+                    .append(", \"scoreError\": ").append(number(r.error))
+                    .append(", \"scoreUnit\": \"ns/op\", \"rawData\": [[");
+            for (int j = 0; j < r.nanosPerOp.length; j++) {
+                if (j > 0) sb.append(", ");
+                sb.append(number(r.nanosPerOp[j]));
+            }
+            sb.append("]]},\n");
+            sb.append("    \"secondaryMetrics\": {\n");
+            sb.append("      \"thrpt\": {\"score\": ").append(number(r.throughput())).append(", \"scoreUnit\": \"ops/s\"},\n");
+            sb.append("      \"gc.alloc.rate.norm\": {\"score\": ").append(number(r.allocPerOp)).append(", \"scoreUnit\": \"B/op\"},\n");
+            sb.append("      \"gc.alloc.rate\": {\"score\": ").append(number(r.allocPerOp * r.throughput() / 1e6)).append(", \"scoreUnit\": \"MB/sec\"},\n");
+            sb.append("      \"gc.count\": {\"score\": ").append(r.gcCount).append(", \"scoreUnit\": \"counts\"},\n");
+            sb.append("      \"gc.time\": {\"score\": ").append(r.gcMillis).append(", \"scoreUnit\": \"ms\"}\n");
+            sb.append("    }\n");
+            sb.append(i + 1 < results.size() ? "  },\n" : "  }\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    private static String number(double x) {
+        // JSON has no NaN
+        return Double.isFinite(x) ? String.format(Locale.ROOT, "%.3f", x) : "null";
+    }
+}
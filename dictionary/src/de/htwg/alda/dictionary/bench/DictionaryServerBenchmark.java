@@ -0,0 +1,188 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.ConcurrentHashDictionary;
+import de.htwg.alda.dictionary.Dictionary;
+import de.htwg.alda.dictionary.DictionaryLoader;
+import de.htwg.alda.dictionary.DictionaryServer;
+import de.htwg.alda.dictionary.SortedArrayDictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load generator for DictionaryServer: throughput and latency percentiles over localhost.
+ * <p>
+ * Every client connection runs on its own virtual thread and sends batches of pipelined requests,
+ * i.e. a whole batch is written before the first response is read. The latency of a request is the time
+ * from writing its batch to reading its response. Of the requests 49% search words of dtengl.txt,
+ * 49% search typos of them (misses) and 2% insert or remove extra keys, so the dictionary stays about the same.
+ * <p>
+ * Without a port, a server with a ConcurrentHashDictionary is started in this process.
+ * With a port, an already running server is used (e.g. DictionaryServer or serve in TestUI),
+ * which should hold dtengl.txt so that the searches find something.
+ * <p>
+ * Usage: DictionaryServerBenchmark [millisPerRun] [port]
+ * <p>
+ * dtengl.txt is read from the working directory. The default is 2000 ms per run.
+ */
+public class DictionaryServerBenchmark {
+    private static final String WORD_FILE = "dtengl.txt";
+    private static final int[] CONNECTIONS = {1, 16, 256};
+    private static final int[] PIPELINE_DEPTHS = {1, 32};
+    private static final int EXTRA_KEYS = 1000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int millis = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        SortedArrayDictionary<String, String> words = new SortedArrayDictionary<>();
+        DictionaryLoader.load(Path.of(WORD_FILE), words);
+        String[] keys = new String[words.size()];
+        int n = 0;
+        for (Dictionary.Entry<String, String> e : words)
+            keys[n++] = e.getKey();
+
+        DictionaryServer server = null;
+        int port;
+        if (args.length > 1) {
+            port = Integer.parseInt(args[1]);
+        } else {
+            Dictionary<String, String> dict = new ConcurrentHashDictionary<>();
+            DictionaryLoader.load(Path.of(WORD_FILE), dict);
+            server = new DictionaryServer(dict, 0);
+            port = server.port();
+        }
+
+        System.out.printf("localhost:%d, %d keys, %d ms per run, latencies in us%n", port, keys.length, millis);
+        System.out.printf("  %11s %6s %12s %9s %9s %9s %9s %7s%n",
+                "connections", "depth", "requests/s", "p50", "p90", "p99", "p99.9", "errors");
+        for (int connections : CONNECTIONS) {
+            for (int depth : PIPELINE_DEPTHS) {
+                run(keys, port, connections, depth, 200);
+                System.out.println("  " + run(keys, port, connections, depth, millis));
+            }
+        }
+
+        if (server != null)
+            server.close();
+    }
+
+    private static Result run(String[] keys, int port, int connections, int depth, int millis)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        Client[] clients = new Client[connections];
+        List<Thread> threads = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            Client client = new Client(keys, port, depth, deadline);
+            clients[c] = client;
+            threads.add(Thread.ofVirtual().start(client));
+        }
+        for (Thread thread : threads)
+            thread.join();
+        double seconds = (System.nanoTime() - begin) / 1.0e9;
+
+        int total = 0;
+        long errors = 0;
+        for (Client client : clients) {
+            total += client.count;
+            errors += client.errors;
+        }
+        long[] latencies = new long[total];
+        int pos = 0;
+        for (Client client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, pos, client.count);
+            pos += client.count;
+        }
+        Arrays.sort(latencies);
+        return new Result(connections, depth, total / seconds, latencies, errors);
+    }
+
+    private static class Client implements Runnable {
+        private final String[] keys;
+        private final int port;
+        private final int depth;
+        private final long deadline;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Client(String[] keys, int port, int depth, long deadline) {
+            this.keys = keys;
+            this.port = port;
+            this.depth = depth;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            StringBuilder batch = new StringBuilder();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                while (System.nanoTime() < deadline) {
+                    batch.setLength(0);
+                    for (int i = 0; i < depth; i++) {
+                        int r = random.nextInt(100);
+                        if (r < 49)
+                            batch.append("s ").append(keys[random.nextInt(keys.length)]);
+                        else if (r < 98)
+                            batch.append("s ").append(keys[random.nextInt(keys.length)]).append('~');
+                        else if (r == 98)
+                            batch.append("i ~").append(random.nextInt(EXTRA_KEYS)).append(" extra");
+                        else
+                            batch.append("d ~").append(random.nextInt(EXTRA_KEYS));
+                        batch.append('\n');
+                    }
+
+                    long sent = System.nanoTime();
+                    out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    for (int i = 0; i < depth; i++) {
+                        String response = in.readLine();
+                        if (response == null)
+                            throw new IOException("connection closed by the server");
+                        if (response.startsWith("!"))
+                            errors++;
+                        add(System.nanoTime() - sent);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void add(long latency) {
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            latencies[count++] = latency;
+        }
+    }
+
+    private record Result(int connections, int depth, double throughput, long[] sortedLatencies, long errors) {
+        private double percentile(double p) {
+            if (sortedLatencies.length == 0)
+                return 0;
+            int i = (int) Math.ceil(p / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(i, 0)] / 1.0e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%11d %6d %12.0f %9.1f %9.1f %9.1f %9.1f %7d", connections, depth, throughput,
+                    percentile(50), percentile(90), percentile(99), percentile(99.9), errors);
+        }
+    }
+}
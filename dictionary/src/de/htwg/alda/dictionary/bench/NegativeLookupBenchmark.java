@@ -0,0 +1,117 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.BinaryTreeDictionary;
+import de.htwg.alda.dictionary.BloomFilteredDictionary;
+import de.htwg.alda.dictionary.Dictionary;
+import de.htwg.alda.dictionary.HashDictionary;
+import de.htwg.alda.dictionary.SortedArrayDictionary;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Time per search for missing and for contained keys, with and without BloomFilteredDictionary.
+ * <p>
+ * The missing keys are typos of the words in dtengl.txt: one character replaced, dropped or appended.
+ * For the filtered dictionaries the expected and observed false positive rates and the filter memory are printed.
+ * <p>
+ * Usage: NegativeLookupBenchmark [bitsPerKey]
+ * <p>
+ * dtengl.txt is read from the working directory. The default is 10 bits per key.
+ */
+public class NegativeLookupBenchmark {
+    private static final String WORD_FILE = "dtengl.txt";
+    private static final int LOOKUPS = 1_000_000;
+    private static final int RUNS = 5;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws IOException {
+        int bitsPerKey = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        List<String[]> words = readWords(WORD_FILE);
+        Random random = new Random(42);
+
+        String[] hits = new String[LOOKUPS];
+        String[] misses = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            hits[i] = words.get(random.nextInt(words.size()))[0];
+            misses[i] = typo(words.get(random.nextInt(words.size()))[0], random);
+        }
+
+        System.out.printf("%s, %d entries, %d bits per key%n", WORD_FILE, words.size(), bitsPerKey);
+        System.out.printf("  %-36s %12s %12s %10s %10s %10s%n", "dictionary", "miss ns", "hit ns", "exp fpr", "obs fpr", "bytes");
+        for (Candidate c : candidates()) {
+            for (boolean filtered : new boolean[]{false, true}) {
+                Dictionary<String, String> dict = c.factory.get();
+                for (String[] w : words)
+                    dict.insert(w[0], w[1]);
+                BloomFilteredDictionary<String, String> bloom = null;
+                if (filtered)
+                    dict = bloom = new BloomFilteredDictionary<>(dict, bitsPerKey);
+
+                double miss = Double.MAX_VALUE;
+                double hit = Double.MAX_VALUE;
+                // the best of several runs, the first ones include the compilation
+                for (int run = 0; run < RUNS; run++) {
+                    miss = Math.min(miss, measure(dict, misses));
+                    hit = Math.min(hit, measure(dict, hits));
+                }
+
+                String name = (filtered ? "filtered " : "") + c.name;
+                if (bloom == null)
+                    System.out.printf("  %-36s %12.1f %12.1f%n", name, miss, hit);
+                else
+                    System.out.printf("  %-36s %12.1f %12.1f %9.2f%% %9.2f%% %10d%n", name, miss, hit,
+                            100 * bloom.expectedFalsePositiveRate(), 100 * bloom.observedFalsePositiveRate(), bloom.memoryBytes());
+            }
+        }
+    }
+
+    private static double measure(Dictionary<String, String> dict, String[] keys) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (String key : keys) {
+            if (dict.search(key) != null)
+                found++;
+        }
+        long time = System.nanoTime() - start;
+        sink += found;
+        return (double) time / keys.length;
+    }
+
+    private static String typo(String word, Random random) {
+        int i = random.nextInt(word.length());
+        return switch (random.nextInt(3)) {
+            case 0 -> word.substring(0, i) + (char) ('a' + random.nextInt(26)) + word.substring(i + 1);
+            case 1 -> word.length() > 1 ? word.substring(0, i) + word.substring(i + 1) : word + "e";
+            default -> word + "e";
+        };
+    }
+
+    private static List<Candidate> candidates() {
+        return List.of(
+                new Candidate("SortedArrayDictionary", SortedArrayDictionary::new),
+                new Candidate("BinaryTreeDictionary", BinaryTreeDictionary::new),
+                new Candidate("HashDictionary", HashDictionary::new));
+    }
+
+    private static List<String[]> readWords(String fileName) throws IOException {
+        List<String[]> words = new ArrayList<>();
+        try (Scanner reader = new Scanner(new FileReader(fileName))) {
+            while (reader.hasNext()) {
+                String key = reader.next();
+                if (!reader.hasNext()) break;
+                words.add(new String[]{key, reader.next()});
+            }
+        }
+        return words;
+    }
+
+    private record Candidate(String name, Supplier<Dictionary<String, String>> factory) {
+    }
+}
@@ -0,0 +1,138 @@
+package de.htwg.alda.dictionary.bench;
+
+import de.htwg.alda.dictionary.*;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the primitive int dictionaries with their boxed counterparts
+ * on the same workload: put all keys, get every key (hits), get absent keys (misses), remove all keys.
+ * <p>
+ * Usage: PrimitiveDictionaryBenchmark [hashedSize] [sortedSize] [rounds]
+ * <p>
+ * The sorted array dictionaries insert in O(n) per key, so they run on a smaller key set.
+ */
+public class PrimitiveDictionaryBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int hashedSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int sortedSize = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        int[] keys = randomKeys(hashedSize, 1);
+        int[] misses = randomKeys(hashedSize, 2);
+        System.out.printf("hashed, %d keys%n", hashedSize);
+        run("HashDictionary<Integer,Integer>", () -> new BoxedWorkload(new HashDictionary<>()), keys, misses, rounds);
+        run("IntHashDictionary<Integer>", () -> new IntWorkload(new IntHashDictionary<>()), keys, misses, rounds);
+        run("IntIntHashDictionary", () -> new IntIntWorkload(new IntIntHashDictionary()), keys, misses, rounds);
+
+        keys = randomKeys(sortedSize, 1);
+        misses = randomKeys(sortedSize, 2);
+        System.out.printf("sorted array, %d keys%n", sortedSize);
+        run("SortedArrayDictionary<Integer,Integer>", () -> new BoxedWorkload(new SortedArrayDictionary<>()), keys, misses, rounds);
+        run("IntSortedArrayDictionary<Integer>", () -> new IntWorkload(new IntSortedArrayDictionary<>()), keys, misses, rounds);
+        run("IntIntSortedArrayDictionary", () -> new IntIntWorkload(new IntIntSortedArrayDictionary()), keys, misses, rounds);
+    }
+
+    private static void run(String name, Supplier<Workload> factory, int[] keys, int[] misses, int rounds) {
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        long sink = 0;
+
+        for (int r = 0; r < WARMUP_ROUNDS + rounds; r++) {
+            Workload w = factory.get();
+            long t0 = System.nanoTime();
+            w.put(keys);
+            long t1 = System.nanoTime();
+            sink += w.get(keys);
+            long t2 = System.nanoTime();
+            sink += w.get(misses);
+            long t3 = System.nanoTime();
+            w.remove(keys);
+            long t4 = System.nanoTime();
+
+            if (r >= WARMUP_ROUNDS) {
+                best[0] = Math.min(best[0], (double) (t1 - t0) / keys.length);
+                best[1] = Math.min(best[1], (double) (t2 - t1) / keys.length);
+                best[2] = Math.min(best[2], (double) (t3 - t2) / misses.length);
+                best[3] = Math.min(best[3], (double) (t4 - t3) / keys.length);
+            }
+        }
+
+        System.out.printf("  %-40s put %7.1f ns  hit %7.1f ns  miss %7.1f ns  remove %7.1f ns  (%d)%n",
+                name, best[0], best[1], best[2], best[3], sink & 1);
+    }
+
+    private static int[] randomKeys(int n, long seed) {
+        // odd and even keys never collide between the two seeds
+        Random random = new Random(seed);
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = (random.nextInt() & ~1) | (int) (seed & 1);
+        return keys;
+    }
+
+    private interface Workload {
+        void put(int[] keys);
+
+        long get(int[] keys);
+
+        void remove(int[] keys);
+    }
+
+    private record BoxedWorkload(Dictionary<Integer, Integer> dict) implements Workload {
+        public void put(int[] keys) {
+            for (int k : keys) dict.insert(k, k);
+        }
+
+        public long get(int[] keys) {
+            long sum = 0;
+            for (int k : keys) {
+                Integer v = dict.search(k);
+                if (v != null) sum += v;
+            }
+            return sum;
+        }
+
+        public void remove(int[] keys) {
+            for (int k : keys) dict.remove(k);
+        }
+    }
+
+    private record IntWorkload(IntDictionary<Integer> dict) implements Workload {
+        public void put(int[] keys) {
+            // the value is boxed here as well, only the key handling differs
+            for (int k : keys) dict.put(k, k);
+        }
+
+        public long get(int[] keys) {
+            long sum = 0;
+            for (int k : keys) {
+                Integer v = dict.get(k);
+                if (v != null) sum += v;
+            }
+            return sum;
+        }
+
+        public void remove(int[] keys) {
+            for (int k : keys) dict.remove(k);
+        }
+    }
+
+    private record IntIntWorkload(IntIntDictionary dict) implements Workload {
+        public void put(int[] keys) {
+            for (int k : keys) dict.put(k, k);
+        }
+
+        public long get(int[] keys) {
+            long sum = 0;
+            for (int k : keys) sum += dict.get(k);
+            return sum;
+        }
+
+        public void remove(int[] keys) {
+            for (int k : keys) dict.remove(k);
+        }
+    }
+}